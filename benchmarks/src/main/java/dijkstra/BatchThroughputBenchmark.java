@@ -0,0 +1,37 @@
+package dijkstra;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Queries per second through BatchQueryEngine, which spreads every pair of a batch over the common ForkJoinPool.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class BatchThroughputBenchmark {
+    private BatchQueryEngine engine;
+
+    @Setup
+    public void setUp(GraphState state) {
+        engine = new BatchQueryEngine(state.snapshot);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(GraphState.QUERY_COUNT)
+    public int[] pairDistances(GraphState state) {
+        return engine.pairDistances(state.starts, state.destinations);
+    }
+}
@@ -0,0 +1,27 @@
+package dijkstra;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+
+// Runs the benchmarks like JMH's own main, but always with the GC profiler, so every result comes with its allocation rate
+// (gc.alloc.rate.norm is the bytes allocated per operation). Takes the usual JMH options, for example:
+//   java -jar benchmarks/target/benchmarks.jar QueryBenchmark -p shape=FLOOR_PLAN -p size=10000
+public class BenchmarkMain {
+    public static void main(String[] args) throws IOException, RunnerException, CommandLineOptionException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        Runner runner = new Runner(new OptionsBuilder().parent(commandLine).addProfiler(GCProfiler.class).build());
+        if (commandLine.shouldHelp()) {
+            commandLine.showHelp();
+        } else if (commandLine.shouldList()) {
+            runner.list();
+        } else {
+            runner.run();
+        }
+    }
+}
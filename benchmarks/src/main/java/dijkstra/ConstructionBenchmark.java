@@ -0,0 +1,77 @@
+package dijkstra;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+// How long it takes to load a graph's edges into a CsrGraph and compile it into a snapshot, and to generate the graph to begin with.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class ConstructionBenchmark {
+    @Param({"FLOOR_PLAN", "GEOMETRIC", "SCALE_FREE"})
+    public String shape;
+
+    @Param({"100", "1000", "10000", "100000", "1000000"})
+    public int size;
+
+    private Vertex[] vertices;
+    private int[] from;
+    private int[] to;
+    private int[] weight;
+
+    @Setup
+    public void setUp() {
+        CsrGraph graph = GraphState.generate(shape, size, GraphState.SEED);
+        vertices = Arrays.copyOf(graph.getVertices(), graph.getVertexCount());
+        GraphSnapshot snapshot = graph.snapshot();
+        from = new int[snapshot.getEdgeCount()];
+        to = new int[from.length];
+        weight = new int[from.length];
+        int[] offsets = snapshot.getOffsets();
+        int[] targets = snapshot.getTargets();
+        int[] weights = snapshot.getWeights();
+        int count = 0;
+        for (int v = 0; v < snapshot.getVertexCount(); v++) {
+            for (int slot = offsets[v]; slot < offsets[v + 1]; slot++) {
+                if (v < targets[slot]) { // Each undirected edge once.
+                    from[count] = v;
+                    to[count] = targets[slot];
+                    weight[count] = weights[slot];
+                    count++;
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public int csrGraph() {
+        CsrGraph graph = new CsrGraph(vertices.length, from.length);
+        for (Vertex vertex : vertices) {
+            graph.addVertex(vertex);
+        }
+        for (int e = 0; e < from.length; e++) {
+            graph.addEdge(from[e], to[e], weight[e]);
+        }
+        return graph.snapshot().getEdgeCount();
+    }
+
+    @Benchmark
+    public int generate() {
+        return GraphState.generate(shape, size, GraphState.SEED).getEdgeCount();
+    }
+}
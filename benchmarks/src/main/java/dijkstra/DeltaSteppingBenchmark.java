@@ -0,0 +1,69 @@
+package dijkstra;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+// Full single-source searches and every room's nearest exit, with delta-stepping on a pool of the given number of threads.
+// threads = 0 runs the sequential ShortestPathContext search instead, as the baseline for the speedup. Run on the big machine with
+// e.g. -p size=1000000 -p threads=0,1,8,16,32; on a laptop the larger thread counts only measure the overhead.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+@State(Scope.Benchmark)
+public class DeltaSteppingBenchmark {
+    @Param({"0", "1", "4", "16", "32"})
+    public int threads;
+
+    private ForkJoinPool pool;
+    private DeltaStepping engine;
+    private int next; // The index of the next source
+
+    @Setup
+    public void setUp(GraphState state) {
+        if (threads > 0) {
+            pool = new ForkJoinPool(threads);
+            engine = new DeltaStepping(state.snapshot, pool, DeltaStepping.defaultDelta(state.snapshot));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    @Benchmark
+    public int singleSource(GraphState state) {
+        int source = state.starts[next++ & (GraphState.QUERY_COUNT - 1)];
+        int destination = state.destinations[0];
+        if (engine == null) {
+            ShortestPathContext context = ShortestPathContext.forCurrentThread();
+            context.singleSource(state.snapshot, source);
+            return context.getDistance(destination);
+        }
+        engine.singleSource(source);
+        return engine.getDistance(destination);
+    }
+
+    @Benchmark
+    public int allExitLabels(GraphState state) {
+        NearestExits exits = engine == null ? NearestExits.compute(state.snapshot, state.exits) : NearestExits.compute(engine, state.exits);
+        return exits.getExit(state.starts[0]);
+    }
+}
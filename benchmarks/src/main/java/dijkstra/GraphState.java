@@ -0,0 +1,57 @@
+package dijkstra;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.SplittableRandom;
+
+// A generated graph shared by every thread of a benchmark, along with the queries to run against it.
+// The graph and queries only depend on the parameters and the seed, so every run measures exactly the same work.
+@State(Scope.Benchmark)
+public class GraphState {
+    public static final long SEED = 3310;
+    public static final int QUERY_COUNT = 1024; // The number of start/destination pairs the benchmarks cycle through
+    public static final int EXIT_COUNT = 8; // The number of exits for nearest-exit queries
+
+    @Param({"FLOOR_PLAN", "GEOMETRIC", "SCALE_FREE"})
+    public String shape;
+
+    @Param({"100", "1000", "10000", "100000", "1000000"})
+    public int size;
+
+    CsrGraph graph;
+    GraphSnapshot snapshot;
+    int[] starts;
+    int[] destinations;
+    int[] exits;
+
+    @Setup
+    public void setUp() {
+        graph = generate(shape, size, SEED);
+        snapshot = graph.snapshot();
+        starts = new int[QUERY_COUNT];
+        destinations = new int[QUERY_COUNT];
+        SplittableRandom random = new SplittableRandom(SEED);
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            starts[i] = random.nextInt(size);
+            destinations[i] = random.nextInt(size);
+        }
+        exits = GraphGenerator.pickVertices(size, EXIT_COUNT, SEED);
+    }
+
+    // Generates one of the benchmark graph shapes.
+    static CsrGraph generate(String shape, int size, long seed) {
+        switch (shape) {
+            case "FLOOR_PLAN":
+                return GraphGenerator.floorPlan(size, seed);
+            case "GEOMETRIC":
+                return GraphGenerator.randomGeometric(size, 8, seed);
+            case "SCALE_FREE":
+                return GraphGenerator.scaleFree(size, 3, seed);
+            default:
+                throw new IllegalArgumentException("Unknown graph shape: " + shape);
+        }
+    }
+}
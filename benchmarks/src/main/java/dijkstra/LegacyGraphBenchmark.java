@@ -0,0 +1,112 @@
+package dijkstra;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+// The original adjacency matrix Graph, as a baseline for the CSR benchmarks: building it edge by edge (each addEdge runs
+// makeSymmetric), building it with addEdges, and its O(V^2) dijkstra with minDistance. Its two VxV matrices rule out the larger
+// sizes, and its dijkstra cannot handle unreachable destinations, so only connected floor plans are used.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class LegacyGraphBenchmark {
+    @Param({"100", "1000"})
+    public int size;
+
+    private Vertex[] vertices;
+    private int[] from;
+    private int[] to;
+    private int[] weight;
+    private Graph graph;
+    private int[] starts;
+    private int[] destinations;
+    private int next;
+    private PrintStream out;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        CsrGraph csr = GraphGenerator.floorPlan(size, GraphState.SEED);
+        GraphSnapshot snapshot = csr.snapshot();
+        vertices = new Vertex[size];
+        System.arraycopy(csr.getVertices(), 0, vertices, 0, size);
+        from = new int[snapshot.getEdgeCount()];
+        to = new int[from.length];
+        weight = new int[from.length];
+        int[] offsets = snapshot.getOffsets();
+        int[] targets = snapshot.getTargets();
+        int[] weights = snapshot.getWeights();
+        int count = 0;
+        for (int v = 0; v < size; v++) {
+            for (int slot = offsets[v]; slot < offsets[v + 1]; slot++) {
+                if (v < targets[slot]) {
+                    from[count] = v;
+                    to[count] = targets[slot];
+                    weight[count] = weights[slot];
+                    count++;
+                }
+            }
+        }
+        graph = addEdges();
+        starts = GraphGenerator.pickVertices(size, 64, GraphState.SEED);
+        destinations = GraphGenerator.pickVertices(size, 64, GraphState.SEED + 1);
+
+        out = System.out; // Graph.dijkstra prints every path, which would swamp the measurement.
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.setOut(out);
+    }
+
+    @Benchmark
+    public Object addEdge() {
+        Graph graph = new Graph(size, from.length);
+        for (Vertex vertex : vertices) {
+            graph.addVertex(vertex);
+        }
+        for (int e = 0; e < from.length; e++) {
+            graph.addEdge(from[e], to[e], weight[e]);
+        }
+        return graph.getWeights();
+    }
+
+    @Benchmark
+    public Object addEdgesInBulk() {
+        return addEdges().getWeights();
+    }
+
+    @Benchmark
+    public int[] dijkstra() {
+        int i = next++ & 63;
+        return graph.dijkstra(graph, starts[i], destinations[i]);
+    }
+
+    // Builds the matrix graph with one addEdges call.
+    private Graph addEdges() {
+        Graph graph = new Graph(size, from.length);
+        for (Vertex vertex : vertices) {
+            graph.addVertex(vertex);
+        }
+        graph.addEdges(from, to, weight);
+        return graph;
+    }
+}
@@ -0,0 +1,59 @@
+package dijkstra;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+// Queries run straight off the mapped pages of a saved graph file. Compare dijkstraMapped with QueryBenchmark.dijkstra for the
+// cost of reading edges through the mapping instead of heap arrays. Opening is not measured here: a mapping is only released when
+// its buffer is garbage collected, so opening in a tight loop measures the operating system running out of mappings.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class MappedGraphBenchmark {
+    private Path file;
+    private MappedGraph mapped;
+    private int next; // The index of the next query pair
+
+    @Setup
+    public void setUp(GraphState state) throws IOException {
+        file = Files.createTempFile("graph", ".bin");
+        MappedGraph.write(state.graph, NearestExits.compute(state.snapshot, state.exits), file);
+        mapped = MappedGraph.open(file);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public int dijkstraMapped(GraphState state) {
+        int i = next++ & (GraphState.QUERY_COUNT - 1);
+        ShortestPathContext context = ShortestPathContext.forCurrentThread();
+        context.shortestPath(mapped, state.starts[i], state.destinations[i]);
+        return context.getDistance(state.destinations[i]);
+    }
+
+    @Benchmark
+    public int nearestExitLabel(GraphState state) {
+        int i = next++ & (GraphState.QUERY_COUNT - 1);
+        return mapped.getExitRoute(state.starts[i]).length;
+    }
+}
@@ -0,0 +1,37 @@
+package dijkstra;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Nearest-exit queries: one room at a time, and every room at once with the multi-source labels.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Thread)
+public class NearestExitBenchmark {
+    private int next; // The index of the next start room
+
+    @Benchmark
+    public int nearestExit(GraphState state) {
+        int i = next++ & (GraphState.QUERY_COUNT - 1);
+        ShortestPathContext context = ShortestPathContext.forCurrentThread();
+        context.nearestTarget(state.snapshot, state.starts[i], state.exits);
+        return context.getReachedTarget();
+    }
+
+    @Benchmark
+    public int allExitLabels(GraphState state) {
+        return NearestExits.compute(state.snapshot, state.exits).getExit(state.starts[0]);
+    }
+}
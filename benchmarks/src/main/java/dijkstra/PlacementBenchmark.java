@@ -0,0 +1,62 @@
+package dijkstra;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// How long VertexPlacer takes to place vertices with guaranteed spacing, and how long a nearest-vertex lookup from a random point
+// takes. Placement should grow linearly with size and lookups should not grow at all.
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class PlacementBenchmark {
+    private static final int MIN_SPACING = 20;
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    private SpatialIndex index;
+    private int[] xs; // The points to look up, scattered over the same square as the vertices
+    private int[] ys;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        index = new SpatialIndex(GraphGenerator.spacedGeometric(size, 6, MIN_SPACING, GraphState.SEED).snapshot());
+        SplittableRandom random = new SplittableRandom(GraphState.SEED);
+        xs = new int[GraphState.QUERY_COUNT];
+        ys = new int[GraphState.QUERY_COUNT];
+        for (int i = 0; i < xs.length; i++) {
+            xs[i] = random.nextInt(index.getMaxX() + 1);
+            ys[i] = random.nextInt(index.getMaxY() + 1);
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int placeVertices() {
+        VertexPlacer placer = VertexPlacer.forCount(size, MIN_SPACING, 0, 0, GraphState.SEED);
+        placer.place(size);
+        return placer.getCount();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public int nearestVertex() {
+        int i = next++ & (GraphState.QUERY_COUNT - 1);
+        return index.nearestVertex(xs[i], ys[i]);
+    }
+}
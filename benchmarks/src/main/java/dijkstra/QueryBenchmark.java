@@ -0,0 +1,48 @@
+package dijkstra;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Single point-to-point queries. Each call runs the next of GraphState's random start/destination pairs.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Thread)
+public class QueryBenchmark {
+    private int next; // The index of the next query pair
+
+    @Benchmark
+    public int dijkstra(GraphState state) {
+        int i = next++ & (GraphState.QUERY_COUNT - 1);
+        ShortestPathContext context = ShortestPathContext.forCurrentThread();
+        context.shortestPath(state.snapshot, state.starts[i], state.destinations[i]);
+        return context.getDistance(state.destinations[i]);
+    }
+
+    @Benchmark
+    public int aStar(GraphState state) {
+        int i = next++ & (GraphState.QUERY_COUNT - 1);
+        PointToPointSearch search = PointToPointSearch.forCurrentThread();
+        search.aStar(state.snapshot, state.starts[i], state.destinations[i]);
+        return search.getDistance();
+    }
+
+    @Benchmark
+    public int bidirectional(GraphState state) {
+        int i = next++ & (GraphState.QUERY_COUNT - 1);
+        PointToPointSearch search = PointToPointSearch.forCurrentThread();
+        search.bidirectional(state.snapshot, state.starts[i], state.destinations[i]);
+        return search.getDistance();
+    }
+}
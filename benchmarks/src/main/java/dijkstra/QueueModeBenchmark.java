@@ -0,0 +1,75 @@
+package dijkstra;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Single-source searches with each priority queue, on GraphState's graphs with their weights multiplied by weightScale, so the
+// monotone queues can be compared on small and on widely spread weights. BINARY_HEAP is HEAP with an arity of 2. LINEAR_SCAN is
+// O(V^2), so it is left out by default; add it with -p queue=LINEAR_SCAN,HEAP,BUCKET and -p size=100,1000,10000.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Thread)
+public class QueueModeBenchmark {
+    @Param({"BINARY_HEAP", "HEAP", "BUCKET", "RADIX", "AUTO"})
+    public String queue;
+
+    @Param({"1", "1000"})
+    public int weightScale;
+
+    private GraphSnapshot graph; // The benchmark graph with its weights scaled
+    private int next; // The index of the next start
+
+    @Setup
+    public void setUp(GraphState state) {
+        graph = weightScale == 1 ? state.snapshot : scaleWeights(state.snapshot, weightScale);
+        ShortestPathContext context = ShortestPathContext.forCurrentThread();
+        if (queue.equals("BINARY_HEAP")) {
+            context.setQueueMode(QueueMode.HEAP);
+            context.setHeapArity(2);
+        } else {
+            context.setQueueMode(QueueMode.valueOf(queue));
+            context.setHeapArity(4);
+        }
+    }
+
+    @Benchmark
+    public int singleSource(GraphState state) {
+        int i = next++ & (GraphState.QUERY_COUNT - 1);
+        ShortestPathContext context = ShortestPathContext.forCurrentThread();
+        context.singleSource(graph, state.starts[i]);
+        return context.getSettledCount();
+    }
+
+    // Copies a snapshot with every edge weight multiplied by scale.
+    private static GraphSnapshot scaleWeights(GraphSnapshot snapshot, int scale) {
+        int[] offsets = snapshot.getOffsets();
+        int[] targets = snapshot.getTargets();
+        int[] weights = snapshot.getWeights();
+        CsrGraph scaled = new CsrGraph(snapshot.getVertexCount(), targets.length / 2);
+        for (int v = 0; v < snapshot.getVertexCount(); v++) {
+            scaled.addVertex(new Vertex(snapshot.getName(v), snapshot.getX(v), snapshot.getY(v)));
+        }
+        for (int v = 0; v < snapshot.getVertexCount(); v++) {
+            for (int slot = offsets[v]; slot < offsets[v + 1]; slot++) {
+                if (v < targets[slot]) { // Each undirected edge is in both rows; add it once.
+                    scaled.addEdge(v, targets[slot], weights[slot] * scale);
+                }
+            }
+        }
+        return scaled.snapshot();
+    }
+}
@@ -0,0 +1,133 @@
+package dijkstra;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Answers many shortest path queries at once by spreading them across the cores of a ForkJoinPool. Every query runs on the same
+// immutable GraphSnapshot, and each worker thread uses its own ShortestPathContext as scratch space, so the workers share nothing
+// that is written to and throughput grows with the number of cores.
+class BatchQueryEngine {
+    private static final int CHUNK_SIZE = 16; // The number of queries a task runs before it stops splitting
+
+    private final GraphSnapshot graph; // The graph to query
+    private final ForkJoinPool pool; // The workers
+    private final QueueMode queueMode; // The priority queue each worker uses
+    private final int heapArity; // The number of children per heap node
+
+    public BatchQueryEngine(GraphSnapshot graph, ForkJoinPool pool, QueueMode queueMode, int heapArity) {
+        this.graph = graph;
+        this.pool = pool;
+        this.queueMode = queueMode;
+        this.heapArity = heapArity;
+    }
+
+    // An engine that uses the common ForkJoinPool and picks each worker's queue from the graph's edge weights.
+    public BatchQueryEngine(GraphSnapshot graph) {
+        this(graph, ForkJoinPool.commonPool(), QueueMode.AUTO, 4);
+    }
+
+    // Gets the snapshot that this engine queries.
+    public GraphSnapshot getGraph() {
+        return graph;
+    }
+
+    // Computes the distance from every source to every target. Row i of the result belongs to sources[i] and column j to targets[j].
+    // Unreachable targets get Integer.MAX_VALUE. Each source costs one full single-source search, however many targets there are.
+    public int[][] distanceMatrix(int[] sources, int[] targets) {
+        int[][] matrix = new int[sources.length][];
+        run(sources.length, (context, i) -> {
+            context.singleSource(graph, sources[i]);
+            int[] row = new int[targets.length];
+            for (int j = 0; j < targets.length; j++) {
+                row[j] = context.getDistance(targets[j]);
+            }
+            matrix[i] = row;
+        });
+        return matrix;
+    }
+
+    // Computes the distance from every vertex to every vertex. This needs V^2 ints of memory, so it is meant for small and medium graphs.
+    public int[][] allPairs() {
+        int vertexCount = graph.getVertexCount();
+        int[][] matrix = new int[vertexCount][];
+        run(vertexCount, (context, source) -> {
+            context.singleSource(graph, source);
+            int[] row = new int[vertexCount];
+            for (int v = 0; v < vertexCount; v++) {
+                row[v] = context.getDistance(v);
+            }
+            matrix[source] = row;
+        });
+        return matrix;
+    }
+
+    // Computes the distance from starts[i] to destinations[i] for every i. Each search stops as soon as its destination is settled.
+    public int[] pairDistances(int[] starts, int[] destinations) {
+        checkPairs(starts, destinations);
+        int[] result = new int[starts.length];
+        run(starts.length, (context, i) -> {
+            context.shortestPath(graph, starts[i], destinations[i]);
+            result[i] = context.getDistance(destinations[i]);
+        });
+        return result;
+    }
+
+    // Computes the shortest path from starts[i] to destinations[i] for every i, start first. A pair with no path gets an empty array.
+    public int[][] pairPaths(int[] starts, int[] destinations) {
+        checkPairs(starts, destinations);
+        int[][] result = new int[starts.length][];
+        run(starts.length, (context, i) -> {
+            int length = context.shortestPath(graph, starts[i], destinations[i]);
+            int[] path = new int[length];
+            System.arraycopy(context.getPath(), 0, path, 0, length);
+            result[i] = path;
+        });
+        return result;
+    }
+
+    // Makes sure that every start has a destination.
+    private static void checkPairs(int[] starts, int[] destinations) {
+        if (starts.length != destinations.length) {
+            throw new IllegalArgumentException("There are " + starts.length + " starts but " + destinations.length + " destinations");
+        }
+    }
+
+    // Runs query(context, i) for every i from 0 to count - 1 on the pool and waits for all of them to finish.
+    private void run(int count, Query query) {
+        pool.invoke(new QueryTask(query, 0, count));
+    }
+
+    // One query of a batch, run with the worker's own context.
+    private interface Query {
+        void run(ShortestPathContext context, int index);
+    }
+
+    // Splits a range of query indices in half until it is small enough, then runs the queries in it on the current worker.
+    @SuppressWarnings("serial") // Tasks are never serialized.
+    private class QueryTask extends RecursiveAction {
+        private final Query query;
+        private final int from;
+        private final int to;
+
+        QueryTask(Query query, int from, int to) {
+            this.query = query;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > CHUNK_SIZE) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new QueryTask(query, from, middle), new QueryTask(query, middle, to));
+                return;
+            }
+            ShortestPathContext context = ShortestPathContext.forCurrentThread(); // Each worker thread has its own scratch space.
+            context.setQueueMode(queueMode);
+            context.setHeapArity(heapArity);
+            for (int i = from; i < to; i++) {
+                query.run(context, i);
+            }
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package dijkstra;
+
+import java.util.Arrays;
+
+// Dial's bucket queue: a monotone priority queue of vertex ids keyed by int distances, for Dijkstra's algorithm on graphs with
+// small integer edge weights. There is one bucket per distance, in a circular window as wide as the heaviest edge, because while
+// Dijkstra's algorithm runs, every distance in the frontier lies between the last one polled and that plus the heaviest edge.
+// Each bucket is a doubly linked list threaded through primitive arrays, so insert and decrease-key are O(1), and polling only
+// moves a cursor forward over empty buckets. A whole search costs O(V + E + D), where D is the largest distance settled.
+class BucketQueue {
+    private int[] head = new int[1]; // The first id in each bucket, or -1
+    private int[] next; // The next id in the same bucket, or -1
+    private int[] previous; // The previous id in the same bucket, or -1 at the head
+    private int[] keys; // The key of each id
+    private int[] bucketOf; // The bucket each id is in, or -1 if it is not in the queue
+    private int bucketCount = 1; // The number of buckets in use: the widest spread of keys plus one
+    private int cursor; // The smallest key that can still be in the queue
+    private int size; // The number of ids in the queue
+
+    public BucketQueue(int capacity) {
+        this.next = new int[capacity];
+        this.previous = new int[capacity];
+        this.keys = new int[capacity];
+        this.bucketOf = new int[capacity];
+        Arrays.fill(bucketOf, -1);
+        Arrays.fill(head, -1);
+    }
+
+    // Gets the largest vertex id + 1 that the queue can hold.
+    public int getCapacity() {
+        return bucketOf.length;
+    }
+
+    // Grows the queue so that it can hold vertex ids up to capacity - 1. Existing entries are kept.
+    public void ensureCapacity(int capacity) {
+        if (capacity <= bucketOf.length) {
+            return;
+        }
+        int oldLength = bucketOf.length;
+        next = Arrays.copyOf(next, capacity);
+        previous = Arrays.copyOf(previous, capacity);
+        keys = Arrays.copyOf(keys, capacity);
+        bucketOf = Arrays.copyOf(bucketOf, capacity);
+        Arrays.fill(bucketOf, oldLength, capacity, -1);
+    }
+
+    // Sets the widest gap there can be between the smallest and largest key in the queue, which for Dijkstra's algorithm is the
+    // heaviest edge weight. The queue must be empty.
+    public void setMaxSpread(int maxSpread) {
+        if (size > 0) {
+            throw new IllegalStateException("The spread of a bucket queue can only change while it is empty");
+        }
+        bucketCount = maxSpread + 1;
+        if (head.length < bucketCount) {
+            head = new int[bucketCount];
+            Arrays.fill(head, -1);
+        }
+    }
+
+    // Gets the number of entries in the queue.
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // Whether or not the vertex id is currently in the queue.
+    public boolean contains(int id) {
+        return bucketOf[id] >= 0;
+    }
+
+    // Inserts the vertex id, or lowers its key if it is already in the queue with a larger key. Returns whether or not the queue
+    // changed. The key must be no smaller than the last key polled and no more than the spread above it.
+    public boolean insertOrDecrease(int id, int key) {
+        if (size == 0 && key - cursor >= bucketCount) { // Nothing is waiting, so the window can jump ahead to the new key.
+            cursor = key;
+        } else if (key < cursor || key - cursor >= bucketCount) {
+            throw new IllegalArgumentException("Key " + key + " is outside the queue's window of " + cursor + " to " + (cursor + bucketCount - 1));
+        }
+        if (bucketOf[id] >= 0) {
+            if (key >= keys[id]) {
+                return false;
+            }
+            unlink(id);
+        }
+        int bucket = key % bucketCount;
+        keys[id] = key;
+        bucketOf[id] = bucket;
+        previous[id] = -1;
+        next[id] = head[bucket];
+        if (head[bucket] >= 0) {
+            previous[head[bucket]] = id;
+        }
+        head[bucket] = id;
+        size++;
+        return true;
+    }
+
+    // Removes and returns an id with the smallest key.
+    public int pollMin() {
+        int bucket = cursor % bucketCount;
+        while (head[bucket] < 0) {
+            cursor++;
+            bucket = bucket + 1 == bucketCount ? 0 : bucket + 1;
+        }
+        int min = head[bucket];
+        unlink(min);
+        return min;
+    }
+
+    // Removes every entry and moves the window back to 0. This costs O(size + spread), not O(capacity), so the queue can be reused
+    // between queries.
+    public void clear() {
+        for (int bucket = 0; size > 0; bucket++) {
+            while (head[bucket] >= 0) {
+                unlink(head[bucket]);
+            }
+        }
+        cursor = 0;
+    }
+
+    // Takes an id out of its bucket.
+    private void unlink(int id) {
+        int bucket = bucketOf[id];
+        if (previous[id] >= 0) {
+            next[previous[id]] = next[id];
+        } else {
+            head[bucket] = next[id];
+        }
+        if (next[id] >= 0) {
+            previous[next[id]] = previous[id];
+        }
+        bucketOf[id] = -1;
+        size--;
+    }
+}
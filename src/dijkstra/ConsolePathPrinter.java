@@ -0,0 +1,32 @@
+package dijkstra;
+
+// Prints each path a CsrGraph finds to System.out, the way CsrGraph always used to.
+class ConsolePathPrinter implements PathListener {
+    @Override
+    public void shortestPath(CsrGraph graph, int start, int destination, int distance, int[] path) {
+        Vertex[] vertices = graph.getVertices();
+        System.out.println("Shortest path from " + vertices[start].getName() + " to " + vertices[destination].getName() + " is " + distance);
+        printPath(graph, path);
+    }
+
+    @Override
+    public void nearestExit(CsrGraph graph, int start, int exit, int distance, int[] path) {
+        Vertex[] vertices = graph.getVertices();
+        if (exit < 0) {
+            System.out.println("No exit can be reached from " + vertices[start].getName());
+        } else {
+            System.out.println("Shortest path from " + vertices[start].getName() + " to the nearest exit, " + vertices[exit].getName() + ", is " + distance);
+        }
+        printPath(graph, path);
+    }
+
+    // Prints the path the listener was given, if there is one. The graph's own getStringPath is not used, because another query
+    // may have replaced it by now.
+    private void printPath(CsrGraph graph, int[] path) {
+        if (path.length == 0) {
+            return;
+        }
+        System.out.println("Path: ");
+        System.out.print(graph.formatEndFirstPath(path, path.length));
+    }
+}
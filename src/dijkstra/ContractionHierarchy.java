@@ -0,0 +1,663 @@
+package dijkstra;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// A contraction hierarchy over a GraphSnapshot, for fast point-to-point queries on graphs that are queried far more often than they change.
+//
+// Preprocessing contracts the vertices one at a time, least important first. Contracting a vertex v removes it from the graph and adds
+// a shortcut u-w for every pair of neighbours whose only shortest connection went through v; a local "witness" search decides that.
+// The order the vertices were contracted in is their rank. Afterwards every shortest path can be found as a path that only goes up in
+// rank from the start, then only down to the destination, so a query is two small upward searches that meet at the top.
+// Each shortcut remembers the vertex it skipped, so the result is unpacked back into the original vertices.
+class ContractionHierarchy {
+    private static final int WITNESS_SETTLE_LIMIT = 500; // How many vertices a witness search may settle before giving up and adding the shortcut
+    private static final int SIMULATE_SETTLE_LIMIT = 100; // The same limit when only estimating how many shortcuts a contraction would add
+    private static final int NEIGHBOUR_UPDATE_DEGREE = 16; // Neighbours with at most this many edges get their priority recomputed after a contraction
+    private static final int CHUNK_SIZE = 256; // The number of vertices a priority task handles before it stops splitting
+
+    private final int vertexCount; // The number of vertices
+    private final int[] rank; // The position of each vertex in the contraction order
+    // The upward edges of each vertex: the edges to neighbours that were contracted after it, including shortcuts.
+    // The row of vertex v runs from upStart[v] up to (but not including) upEnd[v].
+    private final int[] upStart;
+    private final int[] upEnd;
+    private final int[] upTargets;
+    private final int[] upWeights;
+    private final int[] upMiddles; // The vertex a shortcut skips, or -1 for an original edge
+    private final int[] upOwners; // The lower-ranked end of each upward edge, i.e. the vertex whose row it is in
+    private final int shortcutCount; // The number of shortcuts added
+    private final long preprocessingNanos; // How long preprocessing took
+
+    // Query scratch space is per thread rather than per hierarchy, so a thread's scratch never keeps a hierarchy alive.
+    private static final ThreadLocal<Query> QUERIES = ThreadLocal.withInitial(Query::new);
+
+    private ContractionHierarchy(int vertexCount, int[] rank, int[] upStart, int[] upEnd, int[] upTargets, int[] upWeights, int[] upMiddles, int[] upOwners, int shortcutCount, long preprocessingNanos) {
+        this.vertexCount = vertexCount;
+        this.rank = rank;
+        this.upStart = upStart;
+        this.upEnd = upEnd;
+        this.upTargets = upTargets;
+        this.upWeights = upWeights;
+        this.upMiddles = upMiddles;
+        this.upOwners = upOwners;
+        this.shortcutCount = shortcutCount;
+        this.preprocessingNanos = preprocessingNanos;
+    }
+
+    // Builds a hierarchy, estimating the initial vertex priorities in parallel on the common ForkJoinPool.
+    public static ContractionHierarchy build(GraphSnapshot graph) {
+        return build(graph, ForkJoinPool.commonPool());
+    }
+
+    // Builds a hierarchy, estimating the initial vertex priorities in parallel on the given pool. The contraction itself is sequential,
+    // because each contraction changes the neighbourhoods that the next one depends on.
+    public static ContractionHierarchy build(GraphSnapshot graph, ForkJoinPool pool) {
+        long startTime = System.nanoTime();
+        Builder builder = new Builder(graph);
+        builder.contractAll(pool);
+        return builder.finish(System.nanoTime() - startTime);
+    }
+
+    // Gets the number of vertices.
+    public int getVertexCount() {
+        return vertexCount;
+    }
+
+    // Gets the number of shortcuts that preprocessing added.
+    public int getShortcutCount() {
+        return shortcutCount;
+    }
+
+    // Gets how long preprocessing took, in milliseconds.
+    public double getPreprocessingMillis() {
+        return preprocessingNanos / 1e6;
+    }
+
+    // Gets the position of a vertex in the contraction order. Higher ranks were contracted later.
+    public int getRank(int vertex) {
+        return rank[vertex];
+    }
+
+    // Gets the query scratch space that belongs to the current thread. It grows to fit whichever hierarchy it is used with.
+    public static Query forCurrentThread() {
+        return QUERIES.get();
+    }
+
+    // Finds the shortest path from start to destination and returns it destination first, like CsrGraph.dijkstra, without printing it.
+    public int[] dijkstra(int start, int destination) {
+        Query query = forCurrentThread();
+        int length = query.shortestPath(this, start, destination);
+        int[] path = query.getPath();
+        int[] pathArray = new int[length];
+        for (int i = 0; i < length; i++) {
+            pathArray[i] = path[length - 1 - i];
+        }
+        return pathArray;
+    }
+
+    // Runs sampleQueries random queries with both plain Dijkstra and the hierarchy, and describes the preprocessing cost and the speedup.
+    public String report(GraphSnapshot graph, int sampleQueries, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        int[] starts = new int[sampleQueries];
+        int[] destinations = new int[sampleQueries];
+        for (int i = 0; i < sampleQueries; i++) {
+            starts[i] = random.nextInt(vertexCount);
+            destinations[i] = random.nextInt(vertexCount);
+        }
+        ShortestPathContext context = ShortestPathContext.forCurrentThread();
+        Query query = forCurrentThread();
+        long dijkstraSettled = 0;
+        long hierarchySettled = 0;
+        int mismatches = 0;
+
+        long dijkstraStart = System.nanoTime();
+        for (int i = 0; i < sampleQueries; i++) {
+            context.shortestPath(graph, starts[i], destinations[i]);
+            dijkstraSettled += context.getSettledCount();
+        }
+        long dijkstraNanos = System.nanoTime() - dijkstraStart;
+
+        long hierarchyStart = System.nanoTime();
+        for (int i = 0; i < sampleQueries; i++) {
+            query.shortestPath(this, starts[i], destinations[i]);
+            hierarchySettled += query.getSettledCount();
+        }
+        long hierarchyNanos = System.nanoTime() - hierarchyStart;
+
+        for (int i = 0; i < sampleQueries; i++) { // Make sure both agree before claiming a speedup.
+            context.shortestPath(graph, starts[i], destinations[i]);
+            query.shortestPath(this, starts[i], destinations[i]);
+            if (context.getDistance(destinations[i]) != query.getDistance()) {
+                mismatches++;
+            }
+        }
+
+        int queries = Math.max(sampleQueries, 1);
+        return String.format("Contraction hierarchy: %d vertices, %d edges, %d shortcuts, preprocessing %.1f ms%n"
+                        + "Dijkstra: %.1f us/query, %d settled/query%n"
+                        + "Hierarchy: %.1f us/query, %d settled/query%n"
+                        + "Speedup: %.1fx over %d queries, %d mismatches",
+                vertexCount, graph.getEdgeCount(), shortcutCount, getPreprocessingMillis(),
+                dijkstraNanos / 1e3 / queries, dijkstraSettled / queries,
+                hierarchyNanos / 1e3 / queries, hierarchySettled / queries,
+                (double) dijkstraNanos / Math.max(hierarchyNanos, 1), sampleQueries, mismatches);
+    }
+
+    // Finds the upward edge slot between a lower-ranked vertex and one of its higher-ranked neighbours.
+    private int findUpwardSlot(int lower, int higher) {
+        for (int slot = upStart[lower]; slot < upEnd[lower]; slot++) {
+            if (upTargets[slot] == higher) {
+                return slot;
+            }
+        }
+        throw new IllegalStateException("Missing upward edge from " + lower + " to " + higher);
+    }
+
+    // Per-thread scratch space for queries on any hierarchy. The arrays grow to the largest hierarchy queried and are reset lazily
+    // with generation stamps, like ShortestPathContext. Both searches only follow upward edges; the backward one runs from the
+    // destination, which works because every edge is undirected.
+    static class Query {
+        private int[] forwardDistance = new int[0];
+        private int[] backwardDistance = new int[0];
+        private int[] forwardSlot = new int[0]; // The upward edge slot used to reach each vertex, or -1 at the start
+        private int[] backwardSlot = new int[0];
+        private int[] forwardReached = new int[0]; // The generation in which each vertex was reached forwards
+        private int[] backwardReached = new int[0];
+        private final IndexedMinHeap forwardHeap = new IndexedMinHeap(0, 4);
+        private final IndexedMinHeap backwardHeap = new IndexedMinHeap(0, 4);
+        private int generation;
+
+        private int[] path = new int[16]; // The last path found, from the start to the destination
+        private int pathLength;
+        private int distance = Integer.MAX_VALUE;
+        private int settledCount;
+        private long relaxedCount;
+        private long heapOperationCount;
+        private int[] unpackStack = new int[48]; // Pending (from, to, middle) triples while unpacking shortcuts
+        private int[] chain = new int[16]; // The upward edge slots of the forward half of the path while unpacking
+
+        // Gets the path found by the last query, from the start to the destination. Only the first getPathLength() entries are used.
+        public int[] getPath() {
+            return path;
+        }
+
+        // Gets the number of vertices in the path found by the last query, or 0 if there was no path.
+        public int getPathLength() {
+            return pathLength;
+        }
+
+        // Gets the length of the path found by the last query, or Integer.MAX_VALUE if there was no path.
+        public int getDistance() {
+            return distance;
+        }
+
+        // Gets the number of vertices settled by the last query, counting both directions.
+        public int getSettledCount() {
+            return settledCount;
+        }
+
+        // Gets the number of upward edges the last query looked along, counting both directions.
+        public long getRelaxedCount() {
+            return relaxedCount;
+        }
+
+        // Gets the number of heap inserts, decrease-keys and polls in the last query, counting both directions.
+        public long getHeapOperationCount() {
+            return heapOperationCount;
+        }
+
+        // Finds the shortest path from start to destination in a hierarchy. Returns the number of vertices in the unpacked path, or 0
+        // if there is no path.
+        public int shortestPath(ContractionHierarchy hierarchy, int start, int destination) {
+            QueryMetrics metrics = QueryMetrics.current();
+            long started = metrics == null ? 0 : System.nanoTime();
+            search(hierarchy, start, destination);
+            if (metrics != null) {
+                metrics.record("hierarchy", null, System.nanoTime() - started, settledCount, relaxedCount, heapOperationCount, pathLength);
+            }
+            return pathLength;
+        }
+
+        // Runs the upward searches from both ends and unpacks the best path where they meet.
+        private void search(ContractionHierarchy hierarchy, int start, int destination) {
+            int[] upStart = hierarchy.upStart;
+            int[] upEnd = hierarchy.upEnd;
+            int[] upTargets = hierarchy.upTargets;
+            int[] upWeights = hierarchy.upWeights;
+            ensureCapacity(hierarchy.vertexCount);
+            generation++;
+            if (generation == Integer.MAX_VALUE) {
+                Arrays.fill(forwardReached, 0);
+                Arrays.fill(backwardReached, 0);
+                generation = 1;
+            }
+            forwardHeap.clear();
+            backwardHeap.clear();
+            settledCount = 0;
+            relaxedCount = 0;
+            heapOperationCount = 2; // The two seeds.
+            pathLength = 0;
+            distance = Integer.MAX_VALUE;
+
+            forwardDistance[start] = 0;
+            forwardSlot[start] = -1;
+            forwardReached[start] = generation;
+            forwardHeap.insert(start, 0);
+            backwardDistance[destination] = 0;
+            backwardSlot[destination] = -1;
+            backwardReached[destination] = generation;
+            backwardHeap.insert(destination, 0);
+
+            int best = Integer.MAX_VALUE;
+            int meeting = -1;
+            boolean forwards = true;
+            while (true) {
+                // A side is finished once its smallest key can no longer beat the best path, since keys only grow.
+                boolean forwardActive = !forwardHeap.isEmpty() && forwardHeap.peekMinKey() < best;
+                boolean backwardActive = !backwardHeap.isEmpty() && backwardHeap.peekMinKey() < best;
+                if (!forwardActive && !backwardActive) {
+                    break;
+                }
+                if (!forwardActive || !backwardActive) {
+                    forwards = forwardActive;
+                }
+                IndexedMinHeap heap = forwards ? forwardHeap : backwardHeap;
+                int[] sideDistance = forwards ? forwardDistance : backwardDistance;
+                int[] sideSlot = forwards ? forwardSlot : backwardSlot;
+                int[] sideReached = forwards ? forwardReached : backwardReached;
+                int[] otherDistance = forwards ? backwardDistance : forwardDistance;
+                int[] otherReached = forwards ? backwardReached : forwardReached;
+
+                int currentVertex = heap.pollMin();
+                settledCount++;
+                heapOperationCount++;
+                relaxedCount += upEnd[currentVertex] - upStart[currentVertex];
+                int currentDistance = sideDistance[currentVertex];
+                if (otherReached[currentVertex] == generation && (long) currentDistance + otherDistance[currentVertex] < best) {
+                    best = currentDistance + otherDistance[currentVertex];
+                    meeting = currentVertex;
+                }
+                for (int slot = upStart[currentVertex]; slot < upEnd[currentVertex]; slot++) {
+                    int j = upTargets[slot];
+                    int newDistance = currentDistance + upWeights[slot];
+                    if (sideReached[j] != generation || newDistance < sideDistance[j]) {
+                        sideDistance[j] = newDistance;
+                        sideSlot[j] = slot;
+                        sideReached[j] = generation;
+                        heap.insertOrDecrease(j, newDistance);
+                        heapOperationCount++;
+                    }
+                }
+                forwards = !forwards; // Alternate between the two sides.
+            }
+            if (meeting < 0) {
+                return;
+            }
+            distance = best;
+            unpack(hierarchy, start, meeting);
+        }
+
+        // Grows the arrays and heaps to hold vertexCount vertices. New stamps are 0, which is never a live generation.
+        private void ensureCapacity(int vertexCount) {
+            if (forwardDistance.length < vertexCount) {
+                forwardDistance = new int[vertexCount];
+                backwardDistance = new int[vertexCount];
+                forwardSlot = new int[vertexCount];
+                backwardSlot = new int[vertexCount];
+                forwardReached = new int[vertexCount];
+                backwardReached = new int[vertexCount];
+            }
+            forwardHeap.ensureCapacity(vertexCount);
+            backwardHeap.ensureCapacity(vertexCount);
+        }
+
+        // Writes the unpacked path into the path buffer: up from the start to the meeting vertex, then down to the destination.
+        private void unpack(ContractionHierarchy hierarchy, int start, int meeting) {
+            int[] upOwners = hierarchy.upOwners;
+            int[] upTargets = hierarchy.upTargets;
+            int[] upMiddles = hierarchy.upMiddles;
+            int chainLength = 0; // The forward search's edges, collected from the meeting vertex back to the start
+            for (int v = meeting; forwardSlot[v] != -1; v = upOwners[forwardSlot[v]]) {
+                if (chainLength == chain.length) {
+                    chain = Arrays.copyOf(chain, chain.length * 2);
+                }
+                chain[chainLength++] = forwardSlot[v];
+            }
+            append(start);
+            for (int i = chainLength - 1; i >= 0; i--) {
+                appendEdge(hierarchy, upOwners[chain[i]], upTargets[chain[i]], upMiddles[chain[i]]);
+            }
+            for (int v = meeting; backwardSlot[v] != -1; ) { // The backward search's edges lead from the meeting vertex down to the destination.
+                int slot = backwardSlot[v];
+                appendEdge(hierarchy, v, upOwners[slot], upMiddles[slot]);
+                v = upOwners[slot];
+            }
+        }
+
+        // Appends the vertices of the edge from a to b, unpacking shortcuts, but not a itself.
+        private void appendEdge(ContractionHierarchy hierarchy, int a, int b, int skipped) {
+            int top = push(0, a, b, skipped);
+            while (top > 0) {
+                top -= 3;
+                int from = unpackStack[top];
+                int to = unpackStack[top + 1];
+                int middle = unpackStack[top + 2];
+                if (middle < 0) {
+                    append(to);
+                    continue;
+                }
+                // The skipped vertex was contracted before both ends, so both halves of the shortcut are in its upward row.
+                int second = hierarchy.findUpwardSlot(middle, to);
+                int first = hierarchy.findUpwardSlot(middle, from);
+                top = push(top, middle, to, hierarchy.upMiddles[second]);
+                top = push(top, from, middle, hierarchy.upMiddles[first]); // Pushed last so it is unpacked first.
+            }
+        }
+
+        // Pushes a (from, to, middle) triple onto the unpack stack and returns the new top.
+        private int push(int top, int from, int to, int middle) {
+            if (top + 3 > unpackStack.length) {
+                unpackStack = Arrays.copyOf(unpackStack, unpackStack.length * 2);
+            }
+            unpackStack[top] = from;
+            unpackStack[top + 1] = to;
+            unpackStack[top + 2] = middle;
+            return top + 3;
+        }
+
+        // Appends a vertex to the path buffer.
+        private void append(int vertex) {
+            if (pathLength == path.length) {
+                path = Arrays.copyOf(path, path.length * 2);
+            }
+            path[pathLength++] = vertex;
+        }
+    }
+
+    // The mutable state of preprocessing: a dynamic adjacency list that shortcuts are added to as vertices are contracted.
+    private static class Builder {
+        private final int vertexCount;
+        private int[][] neighbours; // The neighbours of each vertex that have not been contracted yet
+        private int[][] weights;
+        private int[][] middles; // The vertex each edge skips, or -1 for an original edge
+        private final int[] degree; // The number of entries used in each vertex's lists
+        private final boolean[] contracted;
+        private final int[] deletedNeighbours; // How many of each vertex's neighbours have been contracted already
+        private final int[] rank;
+        private final ThreadLocal<WitnessSearch> witnesses;
+
+        // The upward edges, appended in contraction order. The row of vertex v runs from upStart[v] to upEnd[v].
+        private final int[] upStart;
+        private final int[] upEnd;
+        private int[] upTargets = new int[16];
+        private int[] upWeights = new int[16];
+        private int[] upMiddles = new int[16];
+        private int[] upOwners = new int[16];
+        private int upCount;
+        private int shortcutCount;
+
+        Builder(GraphSnapshot graph) {
+            vertexCount = graph.getVertexCount();
+            neighbours = new int[vertexCount][];
+            weights = new int[vertexCount][];
+            middles = new int[vertexCount][];
+            degree = new int[vertexCount];
+            contracted = new boolean[vertexCount];
+            deletedNeighbours = new int[vertexCount];
+            rank = new int[vertexCount];
+            upStart = new int[vertexCount];
+            upEnd = new int[vertexCount];
+            witnesses = ThreadLocal.withInitial(() -> new WitnessSearch(vertexCount));
+            int[] offsets = graph.getOffsets();
+            int[] targets = graph.getTargets();
+            int[] graphWeights = graph.getWeights();
+            for (int v = 0; v < vertexCount; v++) {
+                int rowLength = offsets[v + 1] - offsets[v];
+                neighbours[v] = new int[Math.max(rowLength, 2)];
+                weights[v] = new int[Math.max(rowLength, 2)];
+                middles[v] = new int[Math.max(rowLength, 2)];
+                for (int slot = offsets[v]; slot < offsets[v + 1]; slot++) {
+                    if (targets[slot] != v) { // A loop never lies on a shortest path.
+                        neighbours[v][degree[v]] = targets[slot];
+                        weights[v][degree[v]] = graphWeights[slot];
+                        middles[v][degree[v]] = -1;
+                        degree[v]++;
+                    }
+                }
+            }
+        }
+
+        // Contracts every vertex, always picking the one whose contraction looks cheapest right now.
+        void contractAll(ForkJoinPool pool) {
+            int[] priority = new int[vertexCount];
+            pool.invoke(new PriorityTask(priority, 0, vertexCount)); // The adjacency is only read here, so the estimates can run in parallel.
+            IndexedMinHeap queue = new IndexedMinHeap(vertexCount, 4);
+            for (int v = 0; v < vertexCount; v++) {
+                queue.insert(v, priority[v]);
+            }
+            WitnessSearch witness = witnesses.get();
+            int order = 0;
+            while (!queue.isEmpty()) {
+                int v = queue.peekMin();
+                int current = contract(v, witness, false);
+                if (current > queue.peekMinKey()) { // The estimate was stale; re-queue it and look at the new minimum.
+                    queue.changeKey(v, current);
+                    if (queue.peekMin() != v) {
+                        continue;
+                    }
+                }
+                queue.pollMin();
+                recordUpwardEdges(v);
+                contract(v, witness, true);
+                contracted[v] = true;
+                rank[v] = order++;
+                for (int i = 0; i < degree[v]; i++) { // Contracting v changes the cost of contracting its neighbours.
+                    int u = neighbours[v][i];
+                    if (!contracted[u]) {
+                        removeEdge(u, v); // Keep the lists down to the vertices that are still in the graph.
+                        deletedNeighbours[u]++;
+                        if (degree[u] <= NEIGHBOUR_UPDATE_DEGREE) {
+                            queue.changeKey(u, contract(u, witness, false));
+                        } else { // Re-simulating a hub is quadratic in its degree, so just nudge it and let the lazy check above catch up.
+                            queue.changeKey(u, queue.getKey(u) + 1);
+                        }
+                    }
+                }
+            }
+        }
+
+        // Works out which shortcuts contracting v needs. If apply is false it only counts them and returns v's priority,
+        // otherwise it adds them to the graph.
+        int contract(int v, WitnessSearch witness, boolean apply) {
+            int count = 0;
+            int[] activeNeighbours = new int[degree[v]];
+            int[] activeWeights = new int[degree[v]];
+            for (int i = 0; i < degree[v]; i++) {
+                if (!contracted[neighbours[v][i]]) {
+                    activeNeighbours[count] = neighbours[v][i];
+                    activeWeights[count] = weights[v][i];
+                    count++;
+                }
+            }
+            int shortcuts = 0;
+            int settleLimit = apply ? WITNESS_SETTLE_LIMIT : SIMULATE_SETTLE_LIMIT;
+            for (int i = 0; i < count - 1; i++) {
+                int u = activeNeighbours[i];
+                int maxDistance = 0;
+                for (int j = i + 1; j < count; j++) {
+                    maxDistance = Math.max(maxDistance, activeWeights[i] + activeWeights[j]);
+                }
+                witness.run(this, u, v, activeNeighbours, i + 1, count, maxDistance, settleLimit);
+                for (int j = i + 1; j < count; j++) {
+                    int w = activeNeighbours[j];
+                    int viaV = activeWeights[i] + activeWeights[j];
+                    if (witness.distanceTo(w) > viaV) { // No path avoiding v is as short, so the shortcut is needed.
+                        shortcuts++;
+                        if (apply) {
+                            addEdge(u, w, viaV, v);
+                            addEdge(w, u, viaV, v);
+                        }
+                    }
+                }
+            }
+            if (apply) {
+                shortcutCount += shortcuts;
+            }
+            return 2 * (shortcuts - count) + deletedNeighbours[v]; // Edge difference, plus a nudge to spread contractions across the graph.
+        }
+
+        // Adds the edge from a to b to a's list, or lowers its weight if a shorter edge is being added.
+        private void addEdge(int a, int b, int weight, int middle) {
+            for (int i = 0; i < degree[a]; i++) {
+                if (neighbours[a][i] == b) {
+                    if (weight < weights[a][i]) {
+                        weights[a][i] = weight;
+                        middles[a][i] = middle;
+                    }
+                    return;
+                }
+            }
+            if (degree[a] == neighbours[a].length) {
+                neighbours[a] = Arrays.copyOf(neighbours[a], degree[a] * 2);
+                weights[a] = Arrays.copyOf(weights[a], degree[a] * 2);
+                middles[a] = Arrays.copyOf(middles[a], degree[a] * 2);
+            }
+            neighbours[a][degree[a]] = b;
+            weights[a][degree[a]] = weight;
+            middles[a][degree[a]] = middle;
+            degree[a]++;
+        }
+
+        // Removes the edge from a to b from a's list by moving the last entry into its place.
+        private void removeEdge(int a, int b) {
+            for (int i = 0; i < degree[a]; i++) {
+                if (neighbours[a][i] == b) {
+                    degree[a]--;
+                    neighbours[a][i] = neighbours[a][degree[a]];
+                    weights[a][i] = weights[a][degree[a]];
+                    middles[a][i] = middles[a][degree[a]];
+                    return;
+                }
+            }
+        }
+
+        // Copies v's edges to the vertices that have not been contracted yet into the upward rows. All of them will get a higher rank.
+        private void recordUpwardEdges(int v) {
+            upStart[v] = upCount;
+            for (int i = 0; i < degree[v]; i++) {
+                if (contracted[neighbours[v][i]]) {
+                    continue;
+                }
+                if (upCount == upTargets.length) {
+                    upTargets = Arrays.copyOf(upTargets, upCount * 2);
+                    upWeights = Arrays.copyOf(upWeights, upCount * 2);
+                    upMiddles = Arrays.copyOf(upMiddles, upCount * 2);
+                    upOwners = Arrays.copyOf(upOwners, upCount * 2);
+                }
+                upTargets[upCount] = neighbours[v][i];
+                upWeights[upCount] = weights[v][i];
+                upMiddles[upCount] = middles[v][i];
+                upOwners[upCount] = v;
+                upCount++;
+            }
+            upEnd[v] = upCount;
+        }
+
+        // Packs everything the queries need into a ContractionHierarchy.
+        ContractionHierarchy finish(long preprocessingNanos) {
+            return new ContractionHierarchy(vertexCount, rank, upStart, upEnd,
+                    Arrays.copyOf(upTargets, upCount), Arrays.copyOf(upWeights, upCount), Arrays.copyOf(upMiddles, upCount),
+                    Arrays.copyOf(upOwners, upCount), shortcutCount, preprocessingNanos);
+        }
+
+        // Estimates the initial priority of a range of vertices, splitting the range across the pool.
+        @SuppressWarnings("serial") // Tasks are never serialized.
+        private class PriorityTask extends RecursiveAction {
+            private final int[] priority;
+            private final int from;
+            private final int to;
+
+            PriorityTask(int[] priority, int from, int to) {
+                this.priority = priority;
+                this.from = from;
+                this.to = to;
+            }
+
+            @Override
+            protected void compute() {
+                if (to - from > CHUNK_SIZE) {
+                    int middle = (from + to) >>> 1;
+                    invokeAll(new PriorityTask(priority, from, middle), new PriorityTask(priority, middle, to));
+                    return;
+                }
+                WitnessSearch witness = witnesses.get(); // Each worker thread has its own witness search.
+                for (int v = from; v < to; v++) {
+                    priority[v] = contract(v, witness, false);
+                }
+            }
+        }
+    }
+
+    // A Dijkstra search limited by distance and by the number of vertices settled, that ignores one vertex and every contracted vertex.
+    private static class WitnessSearch {
+        private final int[] distance;
+        private final int[] reached;
+        private final int[] target; // The generation in which each vertex was marked as one of the run's targets
+        private final IndexedMinHeap heap;
+        private int generation;
+
+        WitnessSearch(int vertexCount) {
+            distance = new int[vertexCount];
+            reached = new int[vertexCount];
+            target = new int[vertexCount];
+            heap = new IndexedMinHeap(vertexCount, 4);
+        }
+
+        // Searches from source without passing through excluded, until targets[from..to) are all settled, everything within maxDistance
+        // is settled, or settleLimit is hit. Whatever distances were found by then are upper bounds, which is all a witness needs.
+        void run(Builder graph, int source, int excluded, int[] targets, int from, int to, int maxDistance, int settleLimit) {
+            generation++;
+            heap.clear();
+            int remaining = 0;
+            for (int i = from; i < to; i++) {
+                if (target[targets[i]] != generation) {
+                    target[targets[i]] = generation;
+                    remaining++;
+                }
+            }
+            distance[source] = 0;
+            reached[source] = generation;
+            heap.insert(source, 0);
+            int settled = 0;
+            while (remaining > 0 && !heap.isEmpty() && heap.peekMinKey() <= maxDistance && settled < settleLimit) {
+                int u = heap.pollMin();
+                settled++;
+                if (target[u] == generation) {
+                    remaining--;
+                }
+                int[] row = graph.neighbours[u];
+                int[] rowWeights = graph.weights[u];
+                for (int i = 0; i < graph.degree[u]; i++) {
+                    int j = row[i];
+                    if (j == excluded || graph.contracted[j]) {
+                        continue;
+                    }
+                    int newDistance = distance[u] + rowWeights[i];
+                    if (reached[j] != generation || newDistance < distance[j]) {
+                        distance[j] = newDistance;
+                        reached[j] = generation;
+                        heap.insertOrDecrease(j, newDistance);
+                    }
+                }
+            }
+        }
+
+        // Gets the best distance found to vertex, or Integer.MAX_VALUE if it was not reached.
+        int distanceTo(int vertex) {
+            return reached[vertex] == generation ? distance[vertex] : Integer.MAX_VALUE;
+        }
+    }
+}
@@ -0,0 +1,451 @@
+package dijkstra;
+
+import java.util.Arrays;
+
+// A graph class that stores its edges in compressed sparse row (CSR) form instead of two VxV matrices.
+// Edges are collected into primitive edge lists as they are added, and are compiled into offsets/targets/weights
+// the first time the graph is queried after a change. Memory is O(V + E) instead of O(V^2).
+class CsrGraph {
+    public Vertex[] vertices; // The vertices
+
+    private int vertexCount; // The number of vertices
+    private int edgeCount; // The number of edges
+    private int maxVertexCount; // The maximum number of vertices
+    private int maxEdgeCount; // The maximum number of edges
+
+    // The edge lists. Edge e connects edgeFrom[e] and edgeTo[e] with a weight of edgeWeight[e].
+    private int[] edgeFrom;
+    private int[] edgeTo;
+    private int[] edgeWeight;
+    private boolean[] edgeRestricted; // Whether or not the edge has been removed by restrict().
+
+    // The compiled CSR arrays. The neighbours of vertex v are targets[offsets[v]] to targets[offsets[v + 1] - 1].
+    // Every undirected edge appears once in the row of each of its endpoints.
+    private int[] offsets;
+    private int[] targets;
+    private int[] weights;
+    private int[] edgeIds; // The edge list index that each CSR slot came from.
+    private GraphSnapshot snapshot; // An immutable view of the compiled arrays, handed to queries.
+    private SpatialIndex spatialIndex; // A grid over the snapshot's coordinates for nearestVertex, made when it is first needed.
+    private boolean compiled; // Whether or not the CSR arrays reflect the edge lists.
+    private boolean rowsCurrent; // Whether or not every live edge still has its slots in the CSR arrays, i.e. nothing but restrictions has happened since they were built.
+    private long version; // Bumped by every change that can alter a query's result, so caches can tell when they are stale.
+
+    private QueueMode queueMode = QueueMode.AUTO; // How dijkstra picks the next vertex
+    private int heapArity = 4; // The number of children per heap node when queueMode is HEAP
+
+    private int[] lastPath; // The vertices of the last path found, end first, as dijkstra returned them
+    private String stringPath; // The string path, formatted from lastPath when it is first asked for
+    private PathListener[] listeners = new PathListener[0]; // Told about every path that dijkstra and nearestExit find
+    private EdgeListener[] edgeListeners = new EdgeListener[0]; // Told about every edge that is added or restricted
+
+    public CsrGraph(int maxVertices, int maxEdges) {
+        this.vertices = new Vertex[maxVertices];
+        this.maxVertexCount = maxVertices;
+        this.maxEdgeCount = maxEdges;
+        this.edgeFrom = new int[maxEdges];
+        this.edgeTo = new int[maxEdges];
+        this.edgeWeight = new int[maxEdges];
+        this.edgeRestricted = new boolean[maxEdges];
+        this.lastPath = new int[0];
+        this.stringPath = "";
+    }
+
+    // Gets the number of vertices.
+    public int getVertexCount() {
+        return vertexCount;
+    }
+
+    // Gets the number of edges that have been added, including restricted ones.
+    public int getEdgeCount() {
+        return edgeCount;
+    }
+
+    // Gets the vertices of our graph.
+    public Vertex[] getVertices() {
+        return vertices;
+    }
+
+    // Gets the version of the graph. It changes whenever a vertex or edge is added, an edge is restricted, or a vertex's name or coordinates are set.
+    public long getVersion() {
+        return version;
+    }
+
+    // Called by a vertex of this graph when its name or coordinates change.
+    void vertexChanged() {
+        version++;
+        compiled = false; // The snapshot holds copies of the names and coordinates.
+    }
+
+    // Adds a vertex to our graph.
+    public void addVertex(Vertex vertex) {
+        if (vertexCount == maxVertexCount) { // If the graph is full, we cannot add any more vertices.
+            System.out.println("Graph is full");
+            return;
+        }
+        vertices[vertexCount] = vertex;
+        vertexCount++;
+        vertex.addGraph(this);
+        version++;
+        compiled = false; // The offsets array needs a row for the new vertex.
+        rowsCurrent = false;
+    }
+
+    // Adds an undirected edge. Adding an edge between two vertices that are already connected replaces its weight.
+    public void addEdge(int from, int to, int weight) {
+        if (edgeCount == maxEdgeCount) { // If the graph is full, we cannot add any more edges.
+            System.out.println("Graph is full");
+            return;
+        }
+        edgeFrom[edgeCount] = from;
+        edgeTo[edgeCount] = to;
+        edgeWeight[edgeCount] = weight; // Both directions share this weight, so there is nothing to make symmetric.
+        edgeCount++;
+        version++;
+        compiled = false;
+        rowsCurrent = false;
+        for (EdgeListener listener : edgeListeners) {
+            listener.edgeAdded(this, from, to, weight);
+        }
+    }
+
+    // Another version of addEdge that randomizes the weight.
+    public void addEdge(int from, int to) {
+        addEdge(from, to, (int) (Math.random() * 100) + 1);
+    }
+
+    // Adds the first count edges of the arrays at once, by copying them straight into the edge lists. This is for loaders that
+    // have already collected their edges into primitive arrays; the result is the same as calling addEdge for each one.
+    public void addEdges(int[] from, int[] to, int[] weight, int count) {
+        if (count > maxEdgeCount - edgeCount) { // Add as many as fit, like a run of addEdge calls would.
+            System.out.println("Graph is full");
+            count = maxEdgeCount - edgeCount;
+        }
+        System.arraycopy(from, 0, edgeFrom, edgeCount, count);
+        System.arraycopy(to, 0, edgeTo, edgeCount, count);
+        System.arraycopy(weight, 0, edgeWeight, edgeCount, count);
+        edgeCount += count;
+        version++;
+        compiled = false;
+        rowsCurrent = false;
+        for (EdgeListener listener : edgeListeners) {
+            for (int i = 0; i < count; i++) {
+                listener.edgeAdded(this, from[i], to[i], weight[i]);
+            }
+        }
+    }
+
+    // This method effectively removes a connection between two vertices. The edge is only marked as restricted; the CSR arrays are
+    // rebuilt by the next query, so a run of restrictions costs one rebuild rather than one each.
+    public void restrict(int from, int to) {
+        boolean removed = false;
+        if (rowsCurrent) { // Only the neighbours of from need to be checked.
+            for (int slot = offsets[from]; slot < offsets[from + 1]; slot++) {
+                if (targets[slot] == to && !edgeRestricted[edgeIds[slot]]) {
+                    edgeRestricted[edgeIds[slot]] = true;
+                    removed = true;
+                }
+            }
+        } else { // Edges have been added since the last build, so look through the edge lists instead.
+            for (int e = 0; e < edgeCount; e++) {
+                // Restricting every copy of the edge is the same as restricting the newest one, since the rest have been overwritten.
+                if (!edgeRestricted[e] && (edgeFrom[e] == from && edgeTo[e] == to || edgeFrom[e] == to && edgeTo[e] == from)) {
+                    edgeRestricted[e] = true;
+                    removed = true;
+                }
+            }
+        }
+        if (removed) {
+            version++;
+            compiled = false;
+            for (EdgeListener listener : edgeListeners) {
+                listener.edgeRestricted(this, from, to);
+            }
+        }
+    }
+
+    // Prints the path from the start vertex to the end vertex.
+    public String getStringPath() {
+        if (stringPath == null) {
+            stringPath = snapshot().formatEndFirstPath(lastPath, lastPath.length);
+        }
+        return stringPath;
+    }
+
+    // Adds a listener to be told about every path that dijkstra and nearestExit find, for example a ConsolePathPrinter.
+    public void addPathListener(PathListener listener) {
+        listeners = Arrays.copyOf(listeners, listeners.length + 1);
+        listeners[listeners.length - 1] = listener;
+    }
+
+    // Removes a listener added by addPathListener.
+    public void removePathListener(PathListener listener) {
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] == listener) {
+                PathListener[] rest = new PathListener[listeners.length - 1];
+                System.arraycopy(listeners, 0, rest, 0, i);
+                System.arraycopy(listeners, i + 1, rest, i, rest.length - i);
+                listeners = rest;
+                return;
+            }
+        }
+    }
+
+    // Adds a listener to be told about every edge that is added or restricted, for example a DynamicShortestPathTree.
+    public void addEdgeListener(EdgeListener listener) {
+        edgeListeners = Arrays.copyOf(edgeListeners, edgeListeners.length + 1);
+        edgeListeners[edgeListeners.length - 1] = listener;
+    }
+
+    // Removes a listener added by addEdgeListener.
+    public void removeEdgeListener(EdgeListener listener) {
+        for (int i = 0; i < edgeListeners.length; i++) {
+            if (edgeListeners[i] == listener) {
+                EdgeListener[] rest = new EdgeListener[edgeListeners.length - 1];
+                System.arraycopy(edgeListeners, 0, rest, 0, i);
+                System.arraycopy(edgeListeners, i + 1, rest, i, rest.length - i);
+                edgeListeners = rest;
+                return;
+            }
+        }
+    }
+
+    // Gets the priority queue that dijkstra uses.
+    public QueueMode getQueueMode() {
+        return queueMode;
+    }
+
+    // Sets the priority queue that dijkstra uses. LINEAR_SCAN keeps the original O(V^2) behaviour for comparison, and AUTO, the
+    // default, picks BUCKET or HEAP from the heaviest edge.
+    public void setQueueMode(QueueMode queueMode) {
+        this.queueMode = queueMode;
+    }
+
+    // Gets the number of children per heap node.
+    public int getHeapArity() {
+        return heapArity;
+    }
+
+    // Sets the number of children per heap node, e.g. 2, 4 or 8.
+    public void setHeapArity(int heapArity) {
+        if (heapArity < 2) {
+            throw new IllegalArgumentException("Heap arity must be at least 2");
+        }
+        this.heapArity = heapArity;
+    }
+
+    // Gets an immutable snapshot of the graph as it is now. The snapshot is shared until the graph next changes, and is safe to query from many threads.
+    public GraphSnapshot snapshot() {
+        compile();
+        return snapshot;
+    }
+
+    // Gets the vertex closest to the point (x, y), such as a clicked or sensed location, so a query can start there.
+    // Returns -1 if the graph has no vertices.
+    public int nearestVertex(int x, int y) {
+        GraphSnapshot current = snapshot();
+        if (spatialIndex == null || spatialIndex.getGraph() != current) {
+            spatialIndex = new SpatialIndex(current);
+        }
+        return spatialIndex.nearestVertex(x, y);
+    }
+
+    // Gets the edges that restrict() has removed, as (from, to, weight) triples one after another. Edges that were only replaced by
+    // a later addEdge between the same two vertices are left out, and so are edges that were added again after being restricted.
+    int[] getRestrictedEdges() {
+        GraphSnapshot current = snapshot();
+        int[] restricted = new int[0];
+        int count = 0;
+        for (int e = 0; e < edgeCount; e++) {
+            if (edgeRestricted[e] && current.getWeight(edgeFrom[e], edgeTo[e]) < 0) {
+                if (count == restricted.length) {
+                    restricted = Arrays.copyOf(restricted, Math.max(12, count * 2));
+                }
+                restricted[count++] = edgeFrom[e];
+                restricted[count++] = edgeTo[e];
+                restricted[count++] = edgeWeight[e];
+            }
+        }
+        return Arrays.copyOf(restricted, count);
+    }
+
+    // Gets the CSR offsets array. Row v of the CSR arrays runs from offsets[v] up to (but not including) offsets[v + 1].
+    public int[] getOffsets() {
+        compile();
+        return offsets;
+    }
+
+    // Gets the CSR targets array.
+    public int[] getTargets() {
+        compile();
+        return targets;
+    }
+
+    // Gets the CSR weights array, aligned with the targets array.
+    public int[] getWeights() {
+        compile();
+        return weights;
+    }
+
+    // Gets the weight of the edge between two vertices, or -1 if they are not connected.
+    public int getWeight(int from, int to) {
+        return snapshot().getWeight(from, to);
+    }
+
+    // Builds the CSR arrays from the edge lists, if they are out of date. This is a counting sort on the edge endpoints, so it is O(V + E).
+    private void compile() {
+        if (compiled) {
+            return;
+        }
+        int[] degree = new int[vertexCount + 1];
+        for (int e = 0; e < edgeCount; e++) { // Count the number of slots each row needs.
+            if (!edgeRestricted[e]) {
+                degree[edgeFrom[e]]++;
+                degree[edgeTo[e]]++;
+            }
+        }
+        int[] rowStart = new int[vertexCount + 1];
+        for (int v = 0; v < vertexCount; v++) { // Turn the counts into row offsets.
+            rowStart[v + 1] = rowStart[v] + degree[v];
+        }
+        int[] fill = Arrays.copyOf(rowStart, vertexCount);
+        int[] slotTargets = new int[rowStart[vertexCount]];
+        int[] slotWeights = new int[rowStart[vertexCount]];
+        int[] slotEdges = new int[rowStart[vertexCount]];
+        for (int e = 0; e < edgeCount; e++) { // Place each edge in the rows of both of its endpoints.
+            if (!edgeRestricted[e]) {
+                int a = edgeFrom[e];
+                int b = edgeTo[e];
+                slotTargets[fill[a]] = b;
+                slotWeights[fill[a]] = edgeWeight[e];
+                slotEdges[fill[a]++] = e;
+                slotTargets[fill[b]] = a;
+                slotWeights[fill[b]] = edgeWeight[e];
+                slotEdges[fill[b]++] = e;
+            }
+        }
+
+        // Collapse repeated edges between the same two vertices so that the most recently added one wins, like overwriting a matrix cell.
+        // seenAt[t] remembers the slot that target t was written to in the current row.
+        int[] seenAt = new int[vertexCount];
+        Arrays.fill(seenAt, -1);
+        int write = 0;
+        offsets = new int[vertexCount + 1];
+        for (int v = 0; v < vertexCount; v++) {
+            offsets[v] = write;
+            for (int slot = rowStart[v]; slot < rowStart[v + 1]; slot++) {
+                int t = slotTargets[slot];
+                int previous = seenAt[t];
+                if (previous >= offsets[v]) { // This row already has an edge to t, so keep whichever edge was added last.
+                    if (slotEdges[slot] > slotEdges[previous]) {
+                        edgeRestricted[slotEdges[previous]] = true; // The older edge has been overwritten for good, so restrict() only has to remove the newest one.
+                        slotWeights[previous] = slotWeights[slot];
+                        slotEdges[previous] = slotEdges[slot];
+                    } else {
+                        edgeRestricted[slotEdges[slot]] = true;
+                    }
+                    continue;
+                }
+                seenAt[t] = write;
+                slotTargets[write] = t;
+                slotWeights[write] = slotWeights[slot];
+                slotEdges[write] = slotEdges[slot];
+                write++;
+            }
+        }
+        offsets[vertexCount] = write;
+        targets = Arrays.copyOf(slotTargets, write);
+        weights = Arrays.copyOf(slotWeights, write);
+        edgeIds = Arrays.copyOf(slotEdges, write);
+
+        // The snapshot shares the new arrays, which are never written to again; the next change compiles fresh ones.
+        String[] names = new String[vertexCount];
+        int[] xs = new int[vertexCount];
+        int[] ys = new int[vertexCount];
+        for (int v = 0; v < vertexCount; v++) {
+            names[v] = vertices[v].getName();
+            xs[v] = vertices[v].getX();
+            ys[v] = vertices[v].getY();
+        }
+        snapshot = new GraphSnapshot(vertexCount, offsets, targets, weights, names, xs, ys);
+        compiled = true;
+        rowsCurrent = true;
+    }
+
+    // Finds the shortest path from start to destination using the current thread's ShortestPathContext, then tells the listeners.
+    // Returns the path from the destination back to the start, like Graph.dijkstra.
+    public int[] dijkstra(int start, int destination) {
+        ShortestPathContext context = context();
+        int length = context.shortestPath(snapshot(), start, destination);
+        int[] path = finishPath(context, length);
+        for (PathListener listener : listeners) {
+            listener.shortestPath(this, start, destination, context.getDistance(destination), path);
+        }
+        return path;
+    }
+
+    // Finds the shortest path from start to whichever of the exits is closest, stopping as soon as the first exit is reached, then tells
+    // the listeners. Returns the path from the exit back to the start, like dijkstra.
+    public int[] nearestExit(int start, int... exits) {
+        ShortestPathContext context = context();
+        int length = context.nearestTarget(snapshot(), start, exits);
+        int[] path = finishPath(context, length);
+        if (listeners.length > 0) {
+            int exit = length == 0 ? -1 : context.getReachedTarget();
+            int distance = length == 0 ? Integer.MAX_VALUE : context.getDistance(exit);
+            for (PathListener listener : listeners) {
+                listener.nearestExit(this, start, exit, distance, path);
+            }
+        }
+        return path;
+    }
+
+    // Gets the current thread's ShortestPathContext, set up to use this graph's queue mode.
+    ShortestPathContext context() {
+        ShortestPathContext context = ShortestPathContext.forCurrentThread();
+        context.setQueueMode(queueMode);
+        context.setHeapArity(heapArity);
+        return context;
+    }
+
+    // Stores the path that the context just found, and returns it end first. The returned array is the only allocation: it is also
+    // what getStringPath formats, if someone asks for the string. Callers that need no allocation at all can query a
+    // ShortestPathContext directly.
+    private int[] finishPath(ShortestPathContext context, int length) {
+        if (length == 0) { // There is no path to store.
+            this.lastPath = new int[0];
+            this.stringPath = "";
+            return lastPath;
+        }
+        int[] path = context.getPath();
+        int[] pathArray = new int[length];
+        for (int i = 0; i < length; i++) {
+            pathArray[i] = path[length - 1 - i];
+        }
+        this.lastPath = pathArray;
+        this.stringPath = null;
+        return pathArray;
+    }
+
+    // Formats the first length vertices of path as "Begin->A->B->...". This is kept separate from the query so that callers who only need the vertex ids never pay for it.
+    public String formatPath(int[] path, int length) {
+        return snapshot().formatPath(path, length);
+    }
+
+    // Formats a path given end first, as dijkstra and nearestExit return it, as "Begin->A->B->..." from the start.
+    public String formatEndFirstPath(int[] path, int length) {
+        return snapshot().formatEndFirstPath(path, length);
+    }
+
+    // Prints the neighbours of every vertex, which is the CSR equivalent of printing the adjacency matrix.
+    public void printAdjacency() {
+        compile();
+        for (int i = 0; i < vertexCount; i++) {
+            System.out.print(vertices[i].getName() + ":");
+            for (int slot = offsets[i]; slot < offsets[i + 1]; slot++) {
+                System.out.print(" " + vertices[targets[slot]].getName() + "(" + weights[slot] + ")");
+            }
+            System.out.println();
+        }
+    }
+}
@@ -0,0 +1,413 @@
+package dijkstra;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Single-source and multi-source shortest paths spread across the cores of a ForkJoinPool, by delta-stepping (Meyer and Sanders).
+// Tentative distances are grouped into buckets delta wide. The lowest bucket is emptied in phases: every vertex in it relaxes its
+// light edges (weight <= delta) at once, in parallel, which may put vertices back into the same bucket for another phase. Once the
+// bucket stays empty its vertices are final, and they relax their heavy edges, which always land in later buckets. A small delta
+// does little wasted work but has little to do in parallel per phase; a big one is the other way round. The default is the mean
+// edge weight, which was best or close to it on every generated shape; DeltaSteppingBenchmark can check others.
+//
+// Each vertex's distance and predecessor are packed into one long, so a relaxation updates both with a single compare-and-set and
+// no locks. The frontier of each phase is cut into at most one slice per part, and each part keeps its own buckets, so the
+// workers never share a list. Distances are the same as the sequential search; the predecessor tree is a valid shortest path tree, but where
+// there are ties it may pick a different one. An engine runs one search at a time.
+class DeltaStepping {
+    private static final VarHandle STATE = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final VarHandle STAMP = MethodHandles.arrayElementVarHandle(int[].class);
+    private static final long UNREACHED = pack(Integer.MAX_VALUE, -1);
+    private static final int MIN_SLICE = 128; // The fewest frontier vertices worth handing to a worker; smaller phases use fewer workers
+    private static final int MAX_SLOTS = 4096; // The most buckets kept per part; anything further goes in the overflow list
+
+    private final GraphSnapshot graph;
+    private final ForkJoinPool pool;
+    private final int delta;
+
+    // A copy of the CSR rows with each row's light edges first. Row v's light edges end at lightEnd[v].
+    private final int[] offsets;
+    private final int[] lightEnd;
+    private final int[] targets;
+    private final int[] weights;
+
+    private final long[] state; // Each vertex's distance in the high 32 bits and its predecessor in the low 32 bits
+    private final int[] lightAt; // The distance each vertex last relaxed its light edges at, so a vertex listed twice only does it once
+    private final int[] heavyAt; // The distance each vertex relaxed its heavy edges at
+    private final Part[] parts;
+    private final int slotCount; // The number of buckets each part keeps, enough to cover the heaviest edge
+
+    private int current; // The bucket being emptied. Relaxations never land in an earlier one.
+    private int phaseCount; // The number of light phases the last search took
+    private int bucketCount; // The number of buckets the last search emptied
+
+    public DeltaStepping(GraphSnapshot graph, ForkJoinPool pool, int delta) {
+        if (delta <= 0) {
+            throw new IllegalArgumentException("Delta must be at least 1, not " + delta);
+        }
+        this.graph = graph;
+        this.pool = pool;
+        this.delta = delta;
+
+        int vertexCount = graph.getVertexCount();
+        int[] sourceOffsets = graph.getOffsets();
+        int[] sourceTargets = graph.getTargets();
+        int[] sourceWeights = graph.getWeights();
+        this.offsets = sourceOffsets;
+        this.lightEnd = new int[vertexCount];
+        this.targets = new int[sourceTargets.length];
+        this.weights = new int[sourceWeights.length];
+        int maxWeight = 0;
+        for (int v = 0; v < vertexCount; v++) {
+            int light = offsets[v];
+            int heavy = offsets[v + 1];
+            for (int slot = offsets[v]; slot < offsets[v + 1]; slot++) {
+                int write = sourceWeights[slot] <= delta ? light++ : --heavy;
+                targets[write] = sourceTargets[slot];
+                weights[write] = sourceWeights[slot];
+                maxWeight = Math.max(maxWeight, sourceWeights[slot]);
+            }
+            lightEnd[v] = light;
+        }
+
+        this.state = new long[vertexCount];
+        this.lightAt = new int[vertexCount];
+        this.heavyAt = new int[vertexCount];
+        this.slotCount = Math.min(MAX_SLOTS - 2, maxWeight / delta) + 2; // Written this way round so a huge weight cannot overflow.
+        this.parts = new Part[Math.max(1, pool.getParallelism())];
+        for (int p = 0; p < parts.length; p++) {
+            parts[p] = new Part(slotCount);
+        }
+    }
+
+    // An engine that uses the common ForkJoinPool and the mean edge weight as delta.
+    public DeltaStepping(GraphSnapshot graph) {
+        this(graph, ForkJoinPool.commonPool(), defaultDelta(graph));
+    }
+
+    // Gets the delta an engine uses if none is given: the mean edge weight, rounded up.
+    public static int defaultDelta(GraphSnapshot graph) {
+        int[] weights = graph.getWeights();
+        long total = 0;
+        for (int weight : weights) {
+            total += weight;
+        }
+        return (int) Math.max(1, (total + weights.length - 1) / Math.max(weights.length, 1));
+    }
+
+    // Gets the snapshot that this engine searches.
+    public GraphSnapshot getGraph() {
+        return graph;
+    }
+
+    // Gets the bucket width.
+    public int getDelta() {
+        return delta;
+    }
+
+    // Gets the number of light phases the last search took. Each phase is one parallel step, so fewer is better.
+    public int getPhaseCount() {
+        return phaseCount;
+    }
+
+    // Gets the number of buckets the last search emptied.
+    public int getBucketCount() {
+        return bucketCount;
+    }
+
+    // Computes the distance from source to every vertex. Afterwards getDistance(v) is the distance from source to v.
+    public void singleSource(int source) {
+        multiSource(source);
+    }
+
+    // Computes the distance from the nearest of the sources to every vertex. The predecessor tree then leads back to that source.
+    public void multiSource(int... sources) {
+        QueryMetrics metrics = QueryMetrics.current();
+        long started = metrics == null ? 0 : System.nanoTime();
+        Arrays.fill(state, UNREACHED);
+        Arrays.fill(lightAt, -1);
+        Arrays.fill(heavyAt, -1);
+        for (Part part : parts) {
+            part.clear();
+        }
+        current = 0;
+        phaseCount = 0;
+        bucketCount = 0;
+        for (int source : sources) {
+            state[source] = pack(0, -1);
+            parts[0].add(source, 0, this);
+        }
+        run();
+        if (metrics != null) {
+            int settled = 0;
+            long relaxed = 0;
+            long bucketOperations = 0;
+            for (Part part : parts) {
+                settled += part.settledCount;
+                relaxed += part.relaxedCount;
+                bucketOperations += part.bucketOperationCount;
+            }
+            metrics.record("deltaStepping", null, System.nanoTime() - started, settled, relaxed, bucketOperations, 0);
+        }
+    }
+
+    // Gets the distance to a vertex from the last search, or Integer.MAX_VALUE if it was not reached.
+    public int getDistance(int vertex) {
+        return (int) (state[vertex] >>> 32);
+    }
+
+    // Gets the previous vertex on the shortest path to vertex, or -1 if the vertex is a source or was not reached.
+    public int getPredecessor(int vertex) {
+        return (int) state[vertex];
+    }
+
+    // Gets the distance to every vertex from the last search.
+    public int[] getDistances() {
+        int[] distances = new int[state.length];
+        for (int v = 0; v < state.length; v++) {
+            distances[v] = getDistance(v);
+        }
+        return distances;
+    }
+
+    // Gets the predecessor of every vertex from the last search.
+    public int[] getPredecessors() {
+        int[] predecessors = new int[state.length];
+        for (int v = 0; v < state.length; v++) {
+            predecessors[v] = getPredecessor(v);
+        }
+        return predecessors;
+    }
+
+    // Empties the buckets in order until there are none left.
+    private void run() {
+        while (nextBucket()) {
+            bucketCount++;
+            int[] frontier = gather(true);
+            while (frontier.length > 0) { // Light phases, until nothing more lands in this bucket.
+                phaseCount++;
+                relaxAll(frontier, true);
+                frontier = gather(true);
+            }
+            frontier = gather(false); // Everything settled in this bucket is final now.
+            relaxAll(frontier, false);
+            current++;
+        }
+    }
+
+    // Moves current to the lowest bucket that has anything in it, bringing in overflow entries when the window reaches them.
+    // Returns false when every bucket and overflow list is empty.
+    private boolean nextBucket() {
+        while (true) {
+            int overflowMin = Integer.MAX_VALUE;
+            for (Part part : parts) {
+                overflowMin = Math.min(overflowMin, part.overflowMin);
+            }
+            int found = -1;
+            for (int bucket = current; bucket < current + slotCount && found < 0 && bucket < overflowMin; bucket++) {
+                for (Part part : parts) {
+                    if (part.slots[bucket % slotCount].size > 0) {
+                        found = bucket;
+                        break;
+                    }
+                }
+            }
+            if (found >= 0) {
+                current = found;
+                return true;
+            }
+            if (overflowMin == Integer.MAX_VALUE) {
+                return false;
+            }
+            // Nothing in the window comes before the overflow, so slide the window up to it and move in what now fits.
+            current = Math.max(current, overflowMin);
+            for (Part part : parts) {
+                IntList overflow = part.overflow;
+                part.overflow = new IntList();
+                part.overflowMin = Integer.MAX_VALUE;
+                for (int i = 0; i < overflow.size; i++) {
+                    int v = overflow.values[i];
+                    part.add(v, getDistance(v) / delta, this);
+                }
+            }
+        }
+    }
+
+    // Collects either the current bucket of every part, leaving out vertices that have since moved to a lower distance, or the
+    // vertices every part settled in it. Either way the parts' lists are emptied.
+    private int[] gather(boolean bucket) {
+        int total = 0;
+        for (Part part : parts) {
+            total += (bucket ? part.slots[current % slotCount] : part.settled).size;
+        }
+        int[] frontier = new int[total];
+        int count = 0;
+        for (Part part : parts) {
+            IntList list = bucket ? part.slots[current % slotCount] : part.settled;
+            for (int i = 0; i < list.size; i++) {
+                int v = list.values[i];
+                if (!bucket || getDistance(v) / delta == current) {
+                    frontier[count++] = v;
+                }
+            }
+            list.size = 0;
+        }
+        return count == total ? frontier : Arrays.copyOf(frontier, count);
+    }
+
+    // Relaxes the light or heavy edges of every vertex in the frontier, one slice per part, with only as many parts as the frontier
+    // can keep busy. A frontier too small to split is done on the calling thread.
+    private void relaxAll(int[] frontier, boolean light) {
+        int sliceCount = Math.min(parts.length, frontier.length / MIN_SLICE);
+        if (sliceCount <= 1) {
+            relaxSlice(parts[0], frontier, 0, frontier.length, light);
+            return;
+        }
+        RelaxTask[] tasks = new RelaxTask[sliceCount];
+        for (int p = 0; p < sliceCount; p++) {
+            long from = (long) frontier.length * p / sliceCount;
+            long to = (long) frontier.length * (p + 1) / sliceCount;
+            tasks[p] = new RelaxTask(parts[p], frontier, (int) from, (int) to, light);
+        }
+        pool.invoke(new PhaseTask(tasks));
+    }
+
+    // Relaxes the light or heavy edges of frontier[from] to frontier[to - 1], putting whatever improves into part's buckets.
+    private void relaxSlice(Part part, int[] frontier, int from, int to, boolean light) {
+        for (int i = from; i < to; i++) {
+            int u = frontier[i];
+            int distance = (int) ((long) STATE.getAcquire(state, u) >>> 32); // Other workers may be writing state[u], and a plain long read can tear.
+            int[] done = light ? lightAt : heavyAt;
+            if ((int) STAMP.getAndSet(done, u, distance) == distance) { // Someone already relaxed u at this distance.
+                continue;
+            }
+            int start = light ? offsets[u] : lightEnd[u];
+            int end = light ? lightEnd[u] : offsets[u + 1];
+            if (light) {
+                part.settled.add(u);
+                part.settledCount++;
+            }
+            part.relaxedCount += end - start;
+            for (int slot = start; slot < end; slot++) {
+                relax(part, u, targets[slot], distance + weights[slot]);
+            }
+        }
+    }
+
+    // Lowers v's distance to newDistance, with u as its predecessor, unless another worker has already found it a distance at
+    // least as short. Only strict improvements count, which keeps the predecessor tree free of cycles along zero-weight edges.
+    private void relax(Part part, int u, int v, int newDistance) {
+        long update = pack(newDistance, u);
+        while (true) {
+            long old = (long) STATE.getVolatile(state, v);
+            if ((int) (old >>> 32) <= newDistance) {
+                return;
+            }
+            if (STATE.compareAndSet(state, v, old, update)) {
+                part.add(v, newDistance / delta, this);
+                return;
+            }
+        }
+    }
+
+    // Packs a distance and a predecessor into one long, distance first.
+    private static long pack(int distance, int predecessor) {
+        return ((long) distance << 32) | (predecessor & 0xFFFFFFFFL);
+    }
+
+    // One worker's share of the search: its own circular run of buckets, the vertices that went past the end of them, and the
+    // vertices it settled in the current bucket.
+    private static final class Part {
+        private final IntList[] slots;
+        private IntList overflow = new IntList();
+        private int overflowMin = Integer.MAX_VALUE; // The lowest bucket in the overflow list
+        private final IntList settled = new IntList();
+        private int settledCount;
+        private long relaxedCount;
+        private long bucketOperationCount;
+
+        Part(int slotCount) {
+            this.slots = new IntList[slotCount];
+            for (int i = 0; i < slotCount; i++) {
+                slots[i] = new IntList();
+            }
+        }
+
+        // Puts a vertex in a bucket, or in the overflow list if the bucket is past the end of the window.
+        void add(int vertex, int bucket, DeltaStepping engine) {
+            bucketOperationCount++;
+            if (bucket < engine.current + slots.length) {
+                slots[bucket % slots.length].add(vertex);
+            } else {
+                overflow.add(vertex);
+                overflowMin = Math.min(overflowMin, bucket);
+            }
+        }
+
+        void clear() {
+            for (IntList slot : slots) {
+                slot.size = 0;
+            }
+            overflow = new IntList();
+            overflowMin = Integer.MAX_VALUE;
+            settled.size = 0;
+            settledCount = 0;
+            relaxedCount = 0;
+            bucketOperationCount = 0;
+        }
+    }
+
+    // A growable list of ints.
+    private static final class IntList {
+        private int[] values = new int[16];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size + (size >> 1));
+            }
+            values[size++] = value;
+        }
+    }
+
+    // Runs every part's slice of a phase and waits for all of them.
+    @SuppressWarnings("serial") // Tasks are never serialized.
+    private static final class PhaseTask extends RecursiveAction {
+        private final RelaxTask[] tasks;
+
+        PhaseTask(RelaxTask[] tasks) {
+            this.tasks = tasks;
+        }
+
+        @Override
+        protected void compute() {
+            invokeAll(tasks);
+        }
+    }
+
+    // One part's slice of a phase.
+    @SuppressWarnings("serial")
+    private final class RelaxTask extends RecursiveAction {
+        private final Part part;
+        private final int[] frontier;
+        private final int from;
+        private final int to;
+        private final boolean light;
+
+        RelaxTask(Part part, int[] frontier, int from, int to, boolean light) {
+            this.part = part;
+            this.frontier = frontier;
+            this.from = from;
+            this.to = to;
+            this.light = light;
+        }
+
+        @Override
+        protected void compute() {
+            relaxSlice(part, frontier, from, to, light);
+        }
+    }
+}
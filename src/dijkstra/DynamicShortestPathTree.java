@@ -0,0 +1,295 @@
+package dijkstra;
+
+import java.util.Arrays;
+
+// A shortest path tree that is kept up to date as edges are restricted, reweighted or added, instead of being recomputed from scratch.
+// The tree can grow from one source, or from several at once (for example every exit), in which case each vertex's label is its
+// distance to, and next hop towards, its nearest source.
+//
+// Changes are repaired in the style of Ramalingam and Reps. When an edge gets shorter or is added, only the vertices whose distance
+// improves are visited, with a Dijkstra search that starts at the edge. When a tree edge gets longer or is removed, only the subtree
+// hanging below it can change: its labels are thrown away and rebuilt from the best edges into it from the rest of the tree.
+// An edge that is not in the tree can be made longer or removed without touching anything.
+//
+// The tree listens to the CsrGraph it was built from, so every addEdge, addEdges and restrict on the graph is repaired here as it
+// happens. It keeps its own adjacency lists so that a repair does not have to recompile the graph. Adding a vertex is the one change
+// it cannot follow; after that, reading the tree throws an IllegalStateException.
+class DynamicShortestPathTree implements EdgeListener {
+    private final CsrGraph graph; // The graph the tree follows
+    private final int vertexCount;
+    private final int[] sources; // The roots of the tree
+    private final int[][] neighbours; // The neighbours of each vertex
+    private final int[][] weights; // The weight of the edge to each neighbour
+    private final int[] degree; // The number of entries used in each vertex's lists
+
+    private final int[] distance; // The distance from each vertex to its nearest source, or Integer.MAX_VALUE if none can be reached
+    private final int[] parent; // The next vertex towards the nearest source, or -1 at a source or if none can be reached
+
+    private final IndexedMinHeap heap; // The frontier while repairing
+    private final int[] affected; // The vertices being repaired
+    private final int[] inAffected; // The repair in which each vertex was marked as affected
+    private int repair; // The current repair's stamp
+    private int lastAffectedCount; // The number of vertices the last change had to look at
+    private boolean detached; // Whether or not detach has been called
+
+    // Builds the tree for the graph as it is now, computes it from the sources, and starts following the graph's edge changes.
+    public DynamicShortestPathTree(CsrGraph graph, int... sources) {
+        GraphSnapshot snapshot = graph.snapshot();
+        this.graph = graph;
+        this.vertexCount = snapshot.getVertexCount();
+        this.sources = sources.clone();
+        this.neighbours = new int[vertexCount][];
+        this.weights = new int[vertexCount][];
+        this.degree = new int[vertexCount];
+        int[] offsets = snapshot.getOffsets();
+        int[] targets = snapshot.getTargets();
+        int[] graphWeights = snapshot.getWeights();
+        for (int v = 0; v < vertexCount; v++) {
+            int rowLength = offsets[v + 1] - offsets[v];
+            neighbours[v] = Arrays.copyOfRange(targets, offsets[v], offsets[v + 1]);
+            weights[v] = Arrays.copyOfRange(graphWeights, offsets[v], offsets[v + 1]);
+            degree[v] = rowLength;
+        }
+        this.distance = new int[vertexCount];
+        this.parent = new int[vertexCount];
+        this.heap = new IndexedMinHeap(vertexCount, 4);
+        this.affected = new int[vertexCount];
+        this.inAffected = new int[vertexCount];
+        recompute();
+        graph.addEdgeListener(this);
+    }
+
+    // Gets the graph the tree follows.
+    public CsrGraph getGraph() {
+        return graph;
+    }
+
+    // Stops following the graph, so that a tree that is no longer needed is not repaired on every change. Reading the tree afterwards
+    // throws an IllegalStateException.
+    public void detach() {
+        if (!detached) {
+            graph.removeEdgeListener(this);
+            detached = true;
+        }
+    }
+
+    // Gets the distance from vertex to its nearest source, or Integer.MAX_VALUE if no source can be reached.
+    public int getDistance(int vertex) {
+        checkCurrent();
+        return distance[vertex];
+    }
+
+    // Gets the next vertex on the route from vertex towards its nearest source, or -1 if vertex is a source or cannot reach one.
+    public int getParent(int vertex) {
+        checkCurrent();
+        return parent[vertex];
+    }
+
+    // Gets the route from vertex to its nearest source, vertex first. The route is empty if no source can be reached.
+    public int[] getRoute(int vertex) {
+        checkCurrent();
+        if (distance[vertex] == Integer.MAX_VALUE) {
+            return new int[0];
+        }
+        int length = 1;
+        for (int v = vertex; parent[v] >= 0; v = parent[v]) {
+            length++;
+        }
+        int[] route = new int[length];
+        int index = 0;
+        for (int v = vertex; v >= 0; v = parent[v]) {
+            route[index++] = v;
+        }
+        return route;
+    }
+
+    // Gets the number of vertices that the last change had to look at. Compare with getVertexCount() for a full recompute.
+    public int getLastAffectedCount() {
+        return lastAffectedCount;
+    }
+
+    // Gets the number of vertices.
+    public int getVertexCount() {
+        return vertexCount;
+    }
+
+    // Throws the whole tree away and computes it again from the sources.
+    public void recompute() {
+        checkCurrent();
+        Arrays.fill(distance, Integer.MAX_VALUE);
+        Arrays.fill(parent, -1);
+        heap.clear();
+        for (int s : sources) {
+            distance[s] = 0;
+            heap.insertOrDecrease(s, 0);
+        }
+        lastAffectedCount = settle();
+    }
+
+    // Repairs the tree after the graph restricted the edge between two vertices.
+    @Override
+    public void edgeRestricted(CsrGraph graph, int from, int to) {
+        if (graph.getVertexCount() != vertexCount) { // The tree is stale already, and reading it will say so.
+            return;
+        }
+        if (!removeEntry(from, to)) {
+            lastAffectedCount = 0;
+            return;
+        }
+        removeEntry(to, from);
+        lengthened(from, to);
+    }
+
+    // Repairs the tree after the graph added an edge or replaced the weight of an existing one.
+    @Override
+    public void edgeAdded(CsrGraph graph, int from, int to, int weight) {
+        if (graph.getVertexCount() != vertexCount) {
+            return;
+        }
+        int oldWeight = setEntry(from, to, weight);
+        setEntry(to, from, weight);
+        if (oldWeight >= 0 && weight > oldWeight) {
+            lengthened(from, to);
+        } else {
+            shortened(from, to, weight);
+        }
+    }
+
+    // Throws an IllegalStateException if the tree no longer matches its graph.
+    private void checkCurrent() {
+        if (detached) {
+            throw new IllegalStateException("The tree has been detached from its graph");
+        }
+        if (graph.getVertexCount() != vertexCount) {
+            throw new IllegalStateException("The graph has " + graph.getVertexCount() + " vertices but the tree was built for "
+                    + vertexCount + "; build a new tree");
+        }
+    }
+
+    // Repairs the tree after the edge between a and b got shorter or was added: Dijkstra from whichever end it now improves.
+    private void shortened(int a, int b, int weight) {
+        heap.clear();
+        improve(a, b, weight);
+        improve(b, a, weight);
+        lastAffectedCount = settle();
+    }
+
+    // Starts the repair at to if going through from is now shorter.
+    private void improve(int from, int to, int weight) {
+        if (distance[from] != Integer.MAX_VALUE && distance[from] + weight < distance[to]) {
+            distance[to] = distance[from] + weight;
+            parent[to] = from;
+            heap.insertOrDecrease(to, distance[to]);
+        }
+    }
+
+    // Repairs the tree after the edge between a and b got longer or was removed.
+    private void lengthened(int a, int b) {
+        int child;
+        if (parent[b] == a) {
+            child = b;
+        } else if (parent[a] == b) {
+            child = a;
+        } else { // Not a tree edge, so no shortest path used it.
+            lastAffectedCount = 0;
+            return;
+        }
+
+        // Collect the subtree below the edge. A vertex is in it if its parent is.
+        repair++;
+        if (repair == Integer.MAX_VALUE) {
+            Arrays.fill(inAffected, 0);
+            repair = 1;
+        }
+        int count = 0;
+        affected[count++] = child;
+        inAffected[child] = repair;
+        for (int i = 0; i < count; i++) {
+            int v = affected[i];
+            for (int k = 0; k < degree[v]; k++) {
+                int u = neighbours[v][k];
+                if (parent[u] == v && inAffected[u] != repair) {
+                    inAffected[u] = repair;
+                    affected[count++] = u;
+                }
+            }
+        }
+
+        // Give every affected vertex the best label it can get straight from the unaffected part of the tree, then let Dijkstra
+        // spread the labels through the subtree.
+        heap.clear();
+        for (int i = 0; i < count; i++) {
+            int v = affected[i];
+            distance[v] = Integer.MAX_VALUE;
+            parent[v] = -1;
+        }
+        for (int i = 0; i < count; i++) {
+            int v = affected[i];
+            for (int k = 0; k < degree[v]; k++) {
+                int u = neighbours[v][k];
+                if (inAffected[u] != repair && distance[u] != Integer.MAX_VALUE && distance[u] + weights[v][k] < distance[v]) {
+                    distance[v] = distance[u] + weights[v][k];
+                    parent[v] = u;
+                }
+            }
+            if (distance[v] != Integer.MAX_VALUE) {
+                heap.insert(v, distance[v]);
+            }
+        }
+        settle();
+        lastAffectedCount = count;
+    }
+
+    // Runs Dijkstra from whatever is in the heap, only following edges that improve a label. Returns the number of vertices settled.
+    private int settle() {
+        int settled = 0;
+        while (!heap.isEmpty()) {
+            int v = heap.pollMin();
+            settled++;
+            int d = distance[v];
+            for (int k = 0; k < degree[v]; k++) {
+                int u = neighbours[v][k];
+                int newDistance = d + weights[v][k];
+                if (newDistance < distance[u]) {
+                    distance[u] = newDistance;
+                    parent[u] = v;
+                    heap.insertOrDecrease(u, newDistance);
+                }
+            }
+        }
+        return settled;
+    }
+
+    // Sets the weight of the entry for b in a's list, adding it if there is none. Returns the old weight, or -1 if it was added.
+    private int setEntry(int a, int b, int weight) {
+        for (int k = 0; k < degree[a]; k++) {
+            if (neighbours[a][k] == b) {
+                int oldWeight = weights[a][k];
+                weights[a][k] = weight;
+                return oldWeight;
+            }
+        }
+        if (degree[a] == neighbours[a].length) {
+            int capacity = Math.max(4, degree[a] * 2);
+            neighbours[a] = Arrays.copyOf(neighbours[a], capacity);
+            weights[a] = Arrays.copyOf(weights[a], capacity);
+        }
+        neighbours[a][degree[a]] = b;
+        weights[a][degree[a]] = weight;
+        degree[a]++;
+        return -1;
+    }
+
+    // Removes the entry for b from a's list by moving the last entry into its place. Returns whether or not there was one.
+    private boolean removeEntry(int a, int b) {
+        for (int k = 0; k < degree[a]; k++) {
+            if (neighbours[a][k] == b) {
+                degree[a]--;
+                neighbours[a][k] = neighbours[a][degree[a]];
+                weights[a][k] = weights[a][degree[a]];
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,11 @@
+package dijkstra;
+
+// Told about every change to a CsrGraph's edges, so that structures built from the graph, like a DynamicShortestPathTree, can repair
+// themselves instead of going stale. Listeners are called on the changing thread after the graph has changed.
+interface EdgeListener {
+    // Called after addEdge or addEdges adds an edge, or replaces the weight of an existing one.
+    void edgeAdded(CsrGraph graph, int from, int to, int weight);
+
+    // Called after restrict removes the edge between from and to. It is not called if there was no such edge.
+    void edgeRestricted(CsrGraph graph, int from, int to);
+}
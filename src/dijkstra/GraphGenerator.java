@@ -0,0 +1,223 @@
+package dijkstra;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+// Builds synthetic graphs of any size for benchmarks and experiments. Every generator is seeded, so the same arguments always give
+// the same graph. Vertices get coordinates like the ones in Main, and edges are collected into primitive arrays first so the
+// CsrGraph can be sized exactly.
+class GraphGenerator {
+    public static final int SPACING = 100; // The distance between neighbouring rooms, and the average distance between random points
+
+    private GraphGenerator() {
+    }
+
+    // A floor plan shaped like the one in Main, scaled up: rooms on a grid, joined along each row by a corridor, with doors between
+    // rows in some places. The first column is always joined from top to bottom, so every room can reach every other.
+    // Rooms are nudged off the grid a little, and every edge weighs the rounded-up distance between its rooms.
+    public static CsrGraph floorPlan(int rooms, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        int columns = (int) Math.ceil(Math.sqrt(rooms));
+        int[] xs = new int[rooms];
+        int[] ys = new int[rooms];
+        for (int v = 0; v < rooms; v++) {
+            xs[v] = (v % columns) * SPACING + random.nextInt(SPACING / 4);
+            ys[v] = (v / columns) * SPACING + random.nextInt(SPACING / 4);
+        }
+        EdgeBuffer edges = new EdgeBuffer(rooms * 2);
+        for (int v = 0; v < rooms; v++) {
+            int column = v % columns;
+            if (column + 1 < columns && v + 1 < rooms) { // The corridor to the next room in the row.
+                edges.add(v, v + 1, distance(xs, ys, v, v + 1));
+            }
+            if (v + columns < rooms && (column == 0 || random.nextInt(3) == 0)) { // A door to the room below.
+                edges.add(v, v + columns, distance(xs, ys, v, v + columns));
+            }
+        }
+        return build(xs, ys, edges);
+    }
+
+    // A random geometric graph: points scattered uniformly over a square, with an edge between every pair closer than a radius
+    // chosen to give each vertex about averageDegree neighbours. Every edge weighs the rounded-up distance between its points,
+    // so the graph suits A*. Points are bucketed into cells one radius wide, so only neighbouring cells are compared.
+    public static CsrGraph randomGeometric(int vertexCount, double averageDegree, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        int side = (int) Math.ceil(Math.sqrt(vertexCount)) * SPACING;
+        int[] xs = new int[vertexCount];
+        int[] ys = new int[vertexCount];
+        for (int v = 0; v < vertexCount; v++) {
+            xs[v] = random.nextInt(side);
+            ys[v] = random.nextInt(side);
+        }
+        return build(xs, ys, connectWithin(xs, ys, side, SPACING * Math.sqrt(averageDegree / Math.PI), averageDegree));
+    }
+
+    // Like randomGeometric, but no two points are closer than minSpacing, which is more like rooms or sensors than scattered
+    // points are. The points are placed by a VertexPlacer, in O(N), and averageDegree is kept by widening the radius to suit.
+    public static CsrGraph spacedGeometric(int vertexCount, double averageDegree, int minSpacing, long seed) {
+        VertexPlacer placer = VertexPlacer.forCount(vertexCount, minSpacing, 0, 0, seed);
+        placer.place(vertexCount);
+        int[] xs = placer.getXs();
+        int[] ys = placer.getYs();
+        int side = 0;
+        for (int v = 0; v < vertexCount; v++) {
+            side = Math.max(side, Math.max(xs[v], ys[v]) + 1);
+        }
+        // No neighbour is closer than minSpacing, so the disc that holds averageDegree of them is widened by that much area.
+        double density = Math.max(vertexCount, 1) / ((double) side * side);
+        double radius = Math.sqrt(averageDegree / (Math.PI * density) + (double) minSpacing * minSpacing);
+        return build(xs, ys, connectWithin(xs, ys, side, radius, averageDegree));
+    }
+
+    // Joins every pair of points in a side by side square that are no more than radius apart, as randomGeometric describes.
+    private static EdgeBuffer connectWithin(int[] xs, int[] ys, int side, double radius, double averageDegree) {
+        int vertexCount = xs.length;
+        int cellsPerSide = Math.max(1, (int) (side / radius));
+        double cellSize = (double) side / cellsPerSide;
+        int[] cellOf = new int[vertexCount];
+        int[] cellStart = new int[cellsPerSide * cellsPerSide + 1];
+        for (int v = 0; v < vertexCount; v++) {
+            int cellX = Math.min((int) (xs[v] / cellSize), cellsPerSide - 1);
+            int cellY = Math.min((int) (ys[v] / cellSize), cellsPerSide - 1);
+            cellOf[v] = cellY * cellsPerSide + cellX;
+            cellStart[cellOf[v] + 1]++;
+        }
+        for (int c = 0; c < cellsPerSide * cellsPerSide; c++) { // Counting sort of the points by cell, like CsrGraph.compile.
+            cellStart[c + 1] += cellStart[c];
+        }
+        int[] next = Arrays.copyOf(cellStart, cellStart.length - 1);
+        int[] byCell = new int[vertexCount];
+        for (int v = 0; v < vertexCount; v++) {
+            byCell[next[cellOf[v]]++] = v;
+        }
+
+        EdgeBuffer edges = new EdgeBuffer((int) Math.min(Integer.MAX_VALUE - 8, (long) (vertexCount * averageDegree / 2 * 1.1) + 16));
+        double radiusSquared = radius * radius;
+        for (int v = 0; v < vertexCount; v++) {
+            int cellX = cellOf[v] % cellsPerSide;
+            int cellY = cellOf[v] / cellsPerSide;
+            for (int y = Math.max(0, cellY - 1); y <= Math.min(cellsPerSide - 1, cellY + 1); y++) {
+                for (int x = Math.max(0, cellX - 1); x <= Math.min(cellsPerSide - 1, cellX + 1); x++) {
+                    int cell = y * cellsPerSide + x;
+                    for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++) {
+                        int u = byCell[i];
+                        if (u > v) { // Each pair is only looked at from its smaller end.
+                            long dx = xs[u] - xs[v];
+                            long dy = ys[u] - ys[v];
+                            if (dx * dx + dy * dy <= radiusSquared) {
+                                edges.add(v, u, distance(xs, ys, v, u));
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return edges;
+    }
+
+    // A scale-free graph grown by preferential attachment (Barabasi-Albert): each new vertex joins edgesPerVertex existing vertices,
+    // picked with probability proportional to their degree, which gives a few heavily connected hubs. Vertices are placed at random
+    // and edges get random weights from 1 to 100, like Graph.addEdge(from, to), so the coordinates mean nothing to A*.
+    public static CsrGraph scaleFree(int vertexCount, int edgesPerVertex, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        int side = (int) Math.ceil(Math.sqrt(vertexCount)) * SPACING;
+        int[] xs = new int[vertexCount];
+        int[] ys = new int[vertexCount];
+        for (int v = 0; v < vertexCount; v++) {
+            xs[v] = random.nextInt(side);
+            ys[v] = random.nextInt(side);
+        }
+        int core = Math.min(edgesPerVertex + 1, vertexCount); // The vertices that start out joined to each other.
+        EdgeBuffer edges = new EdgeBuffer(vertexCount * edgesPerVertex);
+        int[] endpoints = new int[2 * (core * core + vertexCount * edgesPerVertex)]; // Every edge's ends, so picking from it favours high degree.
+        int endpointCount = 0;
+        for (int a = 0; a < core; a++) {
+            for (int b = a + 1; b < core; b++) {
+                edges.add(a, b, 1 + random.nextInt(100));
+                endpoints[endpointCount++] = a;
+                endpoints[endpointCount++] = b;
+            }
+        }
+        int[] chosen = new int[edgesPerVertex];
+        for (int v = core; v < vertexCount; v++) {
+            int count = 0;
+            while (count < edgesPerVertex) {
+                int u = endpoints[random.nextInt(endpointCount)];
+                boolean duplicate = false;
+                for (int i = 0; i < count; i++) {
+                    duplicate |= chosen[i] == u;
+                }
+                if (!duplicate) {
+                    chosen[count++] = u;
+                }
+            }
+            for (int i = 0; i < count; i++) {
+                edges.add(v, chosen[i], 1 + random.nextInt(100));
+                endpoints[endpointCount++] = v;
+                endpoints[endpointCount++] = chosen[i];
+            }
+        }
+        return build(xs, ys, edges);
+    }
+
+    // Picks count distinct vertices at random, for use as exits or query endpoints.
+    public static int[] pickVertices(int vertexCount, int count, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        int[] picked = new int[Math.min(count, vertexCount)];
+        boolean[] taken = new boolean[vertexCount];
+        for (int i = 0; i < picked.length; i++) {
+            int v = random.nextInt(vertexCount);
+            while (taken[v]) {
+                v = random.nextInt(vertexCount);
+            }
+            taken[v] = true;
+            picked[i] = v;
+        }
+        return picked;
+    }
+
+    // Gets the distance between two vertices, rounded up so it is never shorter than the straight line.
+    private static int distance(int[] xs, int[] ys, int a, int b) {
+        return Math.max(1, (int) Math.ceil(Math.hypot(xs[a] - xs[b], ys[a] - ys[b])));
+    }
+
+    // Creates a CsrGraph that is exactly big enough for the vertices and edges.
+    private static CsrGraph build(int[] xs, int[] ys, EdgeBuffer edges) {
+        CsrGraph graph = new CsrGraph(xs.length, Math.max(edges.size, 1));
+        for (int v = 0; v < xs.length; v++) {
+            graph.addVertex(new Vertex("V" + v, xs[v], ys[v]));
+        }
+        for (int e = 0; e < edges.size; e++) {
+            graph.addEdge(edges.from[e], edges.to[e], edges.weight[e]);
+        }
+        return graph;
+    }
+
+    // A growable list of edges in primitive arrays.
+    private static final class EdgeBuffer {
+        private int[] from;
+        private int[] to;
+        private int[] weight;
+        private int size;
+
+        EdgeBuffer(int capacity) {
+            capacity = Math.max(capacity, 16);
+            this.from = new int[capacity];
+            this.to = new int[capacity];
+            this.weight = new int[capacity];
+        }
+
+        void add(int a, int b, int w) {
+            if (size == from.length) {
+                int capacity = size + (size >> 1);
+                from = Arrays.copyOf(from, capacity);
+                to = Arrays.copyOf(to, capacity);
+                weight = Arrays.copyOf(weight, capacity);
+            }
+            from[size] = a;
+            to[size] = b;
+            weight[size] = w;
+            size++;
+        }
+    }
+}
@@ -0,0 +1,409 @@
+package dijkstra;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+// Loads graphs from files into a CsrGraph. Files are streamed through a FileChannel in large chunks and numbers are parsed
+// straight from the bytes, so no String is made per line, and edges go into primitive arrays that are handed to the graph in one
+// addEdges call at the end. Loading E edges is O(E), with no makeSymmetric pass.
+//
+// Supported formats:
+//   DIMACS shortest path (.gr):  "c ..." comments, "p sp <vertices> <arcs>", then "a <from> <to> <weight>" with ids from 1.
+//   DIMACS coordinates (.co):    "c ..." comments, "p aux sp co <vertices>", then "v <id> <x> <y>" with ids from 1.
+//   Edge lists (.csv, .txt):     "<from>,<to>[,<weight>]" with ids from 0. The weight is 1 if it is left out.
+//   Coordinate lists:            "<id>,<x>,<y>" with ids from 0. Decimal coordinates are rounded.
+// Commas, spaces and tabs all separate fields. In edge and coordinate lists, lines that do not start with a number (headers,
+// "#" comments) are skipped. A missing or out of range number, a vertex id outside the graph, a negative weight, or a weight so heavy
+// that a path could overflow an int distance is an IOException naming the file and line, rather than a wrong graph.
+//
+// DIMACS files list every road in both directions. Both arcs are kept, and CsrGraph keeps one edge per pair when it compiles.
+class GraphImporter {
+    private static final int BUFFER_SIZE = 1 << 20; // The number of bytes read from the channel at a time
+
+    // What the last import did, for report().
+    private long bytesRead;
+    private int vertexCount;
+    private int edgeCount;
+    private long millis;
+    private long peakHeapBytes;
+
+    // Loads a DIMACS graph, with vertex coordinates from a .co file if coordinates is not null.
+    public CsrGraph readDimacs(Path graphFile, Path coordinates) throws IOException {
+        begin();
+        EdgeList edges = new EdgeList();
+        int declaredVertices = 0;
+        try (Reader reader = new Reader(graphFile)) {
+            while (reader.hasMore()) {
+                int type = reader.peek();
+                if (type == 'a') {
+                    reader.skip();
+                    int from = reader.readId(1, declaredVertices);
+                    int to = reader.readId(1, declaredVertices);
+                    edges.add(from, to, reader.readWeight(), reader.line);
+                } else if (type == 'p') { // "p sp <vertices> <arcs>", which tells us how big to make the arrays.
+                    reader.skip();
+                    reader.skipWord();
+                    declaredVertices = reader.readCount();
+                    edges.ensureCapacity(reader.readCount());
+                }
+                reader.skipLine();
+            }
+        }
+        int[][] xy = coordinates == null ? null : readCoordinates(coordinates, true, declaredVertices);
+        int count = Math.max(declaredVertices, edges.maxId + 1);
+        checkWeights(graphFile, count, edges);
+        return finish(count, edges, xy, 1);
+    }
+
+    // Loads an edge list, with vertex coordinates from a coordinate list if coordinates is not null.
+    public CsrGraph readEdgeList(Path edgeFile, Path coordinates) throws IOException {
+        begin();
+        EdgeList edges = new EdgeList();
+        try (Reader reader = new Reader(edgeFile)) {
+            while (reader.hasMore()) {
+                if (reader.atNumber()) {
+                    int from = reader.readId(0, Integer.MAX_VALUE);
+                    int to = reader.readId(0, Integer.MAX_VALUE);
+                    edges.add(from, to, reader.atNumber() ? reader.readWeight() : 1, reader.line);
+                }
+                reader.skipLine();
+            }
+        }
+        int[][] xy = coordinates == null ? null : readCoordinates(coordinates, false, 0);
+        int count = edges.maxId + 1;
+        if (xy != null) {
+            count = Math.max(count, xy[0].length);
+        }
+        checkWeights(edgeFile, count, edges);
+        return finish(count, edges, xy, 0);
+    }
+
+    // Gets a summary of the last import: its size, how long it took, and the most heap it used.
+    public String report() {
+        double seconds = Math.max(millis, 1) / 1000.0;
+        return String.format("Imported %d vertices and %d edges (%.1f MB) in %d ms: %.0f edges/s, %.1f MB/s, peak heap %.1f MB",
+                vertexCount, edgeCount, bytesRead / 1e6, millis, edgeCount / seconds, bytesRead / 1e6 / seconds, peakHeapBytes / 1e6);
+    }
+
+    // Gets the number of bytes read by the last import.
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    // Gets how long the last import took, including building the CsrGraph but not compiling it.
+    public long getMillis() {
+        return millis;
+    }
+
+    // Gets the most heap in use at any point during the last import. This is the JVM's own peak for the heap pools, so it is only
+    // exact if nothing else was running.
+    public long getPeakHeapBytes() {
+        return peakHeapBytes;
+    }
+
+    // Starts the clock and the peak memory counters.
+    private void begin() {
+        bytesRead = 0;
+        millis = System.currentTimeMillis();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    // Throws an IOException if the heaviest edge could make some distance overflow. Every search adds distances in ints: a shortest
+    // path has at most count - 1 edges, and relaxing the edges out of its end adds one more, so weight * count has to fit in an int.
+    private static void checkWeights(Path file, int count, EdgeList edges) throws IOException {
+        if ((long) edges.maxWeight * count > Integer.MAX_VALUE) {
+            throw new IOException(file + ":" + edges.maxWeightLine + ": weight " + edges.maxWeight + " is too heavy for " + count
+                    + " vertices, because a path could overflow an int distance");
+        }
+    }
+
+    // Creates the vertices, hands the edges over, and stops the clock. Vertices are named after their id in the file.
+    private CsrGraph finish(int count, EdgeList edges, int[][] xy, int firstId) {
+        CsrGraph graph = new CsrGraph(count, Math.max(edges.size, 1));
+        for (int v = 0; v < count; v++) {
+            boolean placed = xy != null && v < xy[0].length;
+            graph.addVertex(new Vertex(Integer.toString(v + firstId), placed ? xy[0][v] : 0, placed ? xy[1][v] : 0));
+        }
+        graph.addEdges(edges.from, edges.to, edges.weight, edges.size);
+
+        vertexCount = count;
+        edgeCount = edges.size;
+        millis = System.currentTimeMillis() - millis;
+        peakHeapBytes = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peakHeapBytes += pool.getPeakUsage().getUsed();
+            }
+        }
+        return graph;
+    }
+
+    // Reads a DIMACS .co file or a coordinate list into {xs, ys}, indexed by vertex from 0.
+    private int[][] readCoordinates(Path file, boolean dimacs, int expected) throws IOException {
+        int[] xs = new int[Math.max(expected, 16)];
+        int[] ys = new int[xs.length];
+        int count = 0;
+        try (Reader reader = new Reader(file)) {
+            while (reader.hasMore()) {
+                boolean line = dimacs ? reader.peek() == 'v' : reader.atNumber();
+                if (line) {
+                    if (dimacs) {
+                        reader.skip();
+                    }
+                    int id = dimacs ? reader.readId(1, expected) : reader.readId(0, Integer.MAX_VALUE);
+                    if (id >= xs.length) {
+                        int capacity = Math.max(id + 1, xs.length + (xs.length >> 1));
+                        xs = Arrays.copyOf(xs, capacity);
+                        ys = Arrays.copyOf(ys, capacity);
+                    }
+                    xs[id] = reader.readCoordinate();
+                    ys[id] = reader.readCoordinate();
+                    count = Math.max(count, id + 1);
+                }
+                reader.skipLine();
+            }
+        }
+        return new int[][] {Arrays.copyOf(xs, count), Arrays.copyOf(ys, count)};
+    }
+
+    // A growable list of edges in primitive arrays.
+    private static final class EdgeList {
+        private int[] from = new int[1024];
+        private int[] to = new int[1024];
+        private int[] weight = new int[1024];
+        private int size;
+        private int maxId = -1; // The largest vertex id seen
+        private int maxWeight; // The heaviest weight seen
+        private int maxWeightLine; // The line the heaviest weight was on
+
+        void ensureCapacity(int capacity) {
+            if (capacity > from.length) {
+                from = Arrays.copyOf(from, capacity);
+                to = Arrays.copyOf(to, capacity);
+                weight = Arrays.copyOf(weight, capacity);
+            }
+        }
+
+        void add(int a, int b, int w, int line) {
+            if (size == from.length) {
+                ensureCapacity(size + (size >> 1));
+            }
+            from[size] = a;
+            to[size] = b;
+            weight[size] = w;
+            size++;
+            maxId = Math.max(maxId, Math.max(a, b));
+            if (w > maxWeight) {
+                maxWeight = w;
+                maxWeightLine = line;
+            }
+        }
+    }
+
+    // Reads a file a chunk at a time and parses it byte by byte. A line can straddle two chunks; nothing here cares, because the
+    // next byte is fetched from the next chunk whenever the current one runs out.
+    private final class Reader implements AutoCloseable {
+        private final Path file;
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        private final byte[] bytes = buffer.array();
+        private int position; // The next byte to parse
+        private int limit; // The number of bytes in the current chunk
+        private boolean endOfFile;
+        private int line = 1; // The line being parsed, for error messages
+
+        Reader(Path file) throws IOException {
+            this.file = file;
+            this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        }
+
+        // Whether or not there are any bytes left.
+        boolean hasMore() throws IOException {
+            return position < limit || fill();
+        }
+
+        // Gets the next byte without using it, or -1 at the end of the file.
+        int peek() throws IOException {
+            return hasMore() ? bytes[position] : -1;
+        }
+
+        // Moves past the next byte.
+        void skip() {
+            position++;
+        }
+
+        // Moves past the rest of the current line, including its line break.
+        void skipLine() throws IOException {
+            while (hasMore()) {
+                if (bytes[position++] == '\n') {
+                    line++;
+                    return;
+                }
+            }
+        }
+
+        // Moves past any separators and then one word of letters, such as the "sp" in a DIMACS problem line.
+        void skipWord() throws IOException {
+            skipSeparators();
+            while (hasMore() && bytes[position] > ' ' && bytes[position] != ',') {
+                position++;
+            }
+        }
+
+        // Whether or not the next field on this line is a number.
+        boolean atNumber() throws IOException {
+            skipSeparators();
+            int b = peek();
+            return (b >= '0' && b <= '9') || b == '-' || b == '+';
+        }
+
+        // Parses the next whole number on the line. Throws an IOException if there is none, or if it does not fit in an int.
+        int readInt() throws IOException {
+            skipSeparators();
+            boolean negative = readSign();
+            if (!atDigit()) {
+                throw error("expected a number");
+            }
+            return readDigits(negative);
+        }
+
+        // Parses a vertex id numbered from firstId, and returns it numbered from 0. Throws an IOException unless
+        // firstId <= id < firstId + count.
+        int readId(int firstId, int count) throws IOException {
+            int id = readInt();
+            if (id < firstId) {
+                throw error("vertex " + id + " is less than " + firstId);
+            }
+            if (id - firstId >= count) {
+                throw error("vertex " + id + " is more than " + ((long) firstId + count - 1));
+            }
+            return id - firstId;
+        }
+
+        // Parses an edge weight. Throws an IOException if it is negative, which Dijkstra's algorithm cannot handle.
+        int readWeight() throws IOException {
+            int weight = readInt();
+            if (weight < 0) {
+                throw error("negative weight " + weight);
+            }
+            return weight;
+        }
+
+        // Parses a vertex or edge count. Throws an IOException if it is negative.
+        int readCount() throws IOException {
+            int count = readInt();
+            if (count < 0) {
+                throw error("negative count " + count);
+            }
+            return count;
+        }
+
+        // Parses the next number on the line, which may have a fractional part, and rounds it to the nearest whole number.
+        int readCoordinate() throws IOException {
+            skipSeparators();
+            boolean negative = readSign();
+            boolean digits = atDigit();
+            int whole = digits ? readDigits(negative) : 0; // ".5" has no whole part.
+            if (peek() != '.') {
+                if (!digits) {
+                    throw error("expected a number");
+                }
+                return whole;
+            }
+            position++;
+            if (!digits && !atDigit()) {
+                throw error("expected a number");
+            }
+            boolean roundAway = hasMore() && bytes[position] >= '5' && bytes[position] <= '9'; // Only the first decimal place matters.
+            while (hasMore() && bytes[position] >= '0' && bytes[position] <= '9') {
+                position++;
+            }
+            if (!roundAway) {
+                return whole;
+            }
+            return negative ? whole - 1 : whole + 1;
+        }
+
+        // Makes an exception for a problem on the current line.
+        IOException error(String message) {
+            return new IOException(file + ":" + line + ": " + message);
+        }
+
+        // Moves past a leading + or -. Returns whether or not it was a minus.
+        private boolean readSign() throws IOException {
+            int b = peek();
+            if (b == '-' || b == '+') {
+                position++;
+                return b == '-';
+            }
+            return false;
+        }
+
+        // Whether or not the next byte is a digit.
+        private boolean atDigit() throws IOException {
+            return hasMore() && bytes[position] >= '0' && bytes[position] <= '9';
+        }
+
+        // Parses a run of digits that follows a sign. Throws an IOException if the number does not fit in an int.
+        private int readDigits(boolean negative) throws IOException {
+            long limit = negative ? -(long) Integer.MIN_VALUE : Integer.MAX_VALUE;
+            long value = 0;
+            while (atDigit()) {
+                value = value * 10 + (bytes[position++] - '0');
+                if (value > limit) {
+                    throw error("number out of range");
+                }
+            }
+            return (int) (negative ? -value : value);
+        }
+
+        // Moves past spaces, tabs and commas, but not past the end of the line.
+        private void skipSeparators() throws IOException {
+            while (hasMore()) {
+                byte b = bytes[position];
+                if (b != ' ' && b != '\t' && b != ',' && b != '\r') {
+                    return;
+                }
+                position++;
+            }
+        }
+
+        // Reads the next chunk. Returns whether or not there was one.
+        private boolean fill() throws IOException {
+            if (endOfFile) {
+                return false;
+            }
+            buffer.clear();
+            int read = channel.read(buffer);
+            while (read == 0) {
+                read = channel.read(buffer);
+            }
+            if (read < 0) {
+                endOfFile = true;
+                position = 0;
+                limit = 0;
+                return false;
+            }
+            bytesRead += read;
+            position = 0;
+            limit = read;
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package dijkstra;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+
+// Draws a graph the way GraphPanel always has: black lines for edges with their weights in red, and black dots for vertices with
+// their names in blue. The highlighted path is drawn in green on top.
+//
+// Only what is in view is drawn. A SpatialIndex finds the vertices and edges inside the view, and each undirected edge is drawn
+// once. The graph itself is drawn into an offscreen layer, which is kept until the view or the size changes, so repainting for a
+// new path only draws the path. Nothing here needs a display, so writePng works headless.
+class GraphRenderer {
+    private static final int MARGIN = 20; // Pixels outside the view that are still drawn, so dots and labels at the border are not cut
+    private static final int LABEL_LIMIT = 2000; // Names and weights are only drawn when at most this many vertices are in view
+    private static final Color PATH_COLOR = new Color(0, 160, 0);
+    private static final Stroke PATH_STROKE = new BasicStroke(3f, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND);
+
+    private final GraphSnapshot graph;
+    private final SpatialIndex index;
+
+    private double originX; // The world coordinates at the top-left corner of the view
+    private double originY;
+    private double scale = 1; // Pixels per world unit
+    private int[] path = new int[0]; // The vertices of the highlighted path, in order from either end
+
+    private BufferedImage layer; // The graph without the path, drawn for the current view
+    private boolean layerCurrent; // Whether or not the layer shows the current view
+
+    public GraphRenderer(GraphSnapshot graph) {
+        this.graph = graph;
+        this.index = new SpatialIndex(graph);
+    }
+
+    // Gets the spatial index of the graph's vertices and edges.
+    public SpatialIndex getIndex() {
+        return index;
+    }
+
+    // Gets the world x coordinate at the left of the view.
+    public double getOriginX() {
+        return originX;
+    }
+
+    // Gets the world y coordinate at the top of the view.
+    public double getOriginY() {
+        return originY;
+    }
+
+    // Gets the number of pixels per world unit.
+    public double getScale() {
+        return scale;
+    }
+
+    // Moves the view so that the world point (originX, originY) is at the top-left corner, scale pixels per world unit.
+    public void setView(double originX, double originY, double scale) {
+        this.originX = originX;
+        this.originY = originY;
+        this.scale = scale;
+        layerCurrent = false;
+    }
+
+    // Moves the view by dx, dy pixels, as when the graph is dragged.
+    public void pan(int dx, int dy) {
+        setView(originX - dx / scale, originY - dy / scale, scale);
+    }
+
+    // Zooms by factor, keeping the world point under the pixel (x, y) where it is.
+    public void zoom(double factor, int x, int y) {
+        double worldX = originX + x / scale;
+        double worldY = originY + y / scale;
+        double newScale = scale * factor;
+        setView(worldX - x / newScale, worldY - y / newScale, newScale);
+    }
+
+    // Sets the view so that the whole graph fits in width by height pixels.
+    public void fit(int width, int height) {
+        double graphWidth = Math.max(1, (double) index.getMaxX() - index.getMinX());
+        double graphHeight = Math.max(1, (double) index.getMaxY() - index.getMinY());
+        double newScale = Math.min(Math.max(width - 2 * MARGIN, 1) / graphWidth, Math.max(height - 2 * MARGIN, 1) / graphHeight);
+        setView(index.getMinX() - MARGIN / newScale, index.getMinY() - MARGIN / newScale, newScale);
+    }
+
+    // Gets the vertex nearest to the pixel (x, y) in the current view, such as where the mouse was clicked, or -1 if there are none.
+    public int vertexAt(int x, int y) {
+        return index.nearestVertex((int) Math.round(originX + x / scale), (int) Math.round(originY + y / scale));
+    }
+
+    // Highlights a path, such as the array that CsrGraph.dijkstra returns. Only the path is redrawn on the next paint.
+    public void setPath(int[] path) {
+        this.path = path.clone();
+    }
+
+    // Paints the graph and the path into a width by height area, redrawing the graph only if the view or the size has changed.
+    public void paint(Graphics2D g, int width, int height) {
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+        if (layer == null || layer.getWidth() != width || layer.getHeight() != height) {
+            layer = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            layerCurrent = false;
+        }
+        if (!layerCurrent) {
+            Graphics2D layerGraphics = layer.createGraphics();
+            layerGraphics.setComposite(AlphaComposite.Clear);
+            layerGraphics.fillRect(0, 0, width, height);
+            layerGraphics.setComposite(AlphaComposite.SrcOver);
+            drawGraph(layerGraphics, width, height);
+            layerGraphics.dispose();
+            layerCurrent = true;
+        }
+        g.drawImage(layer, 0, 0, null);
+        drawPath(g);
+    }
+
+    // Renders the graph and the path on a white background and saves them as a PNG, without a window or a cached layer.
+    public void writePng(Path file, int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, width, height);
+        drawGraph(g, width, height);
+        drawPath(g);
+        g.dispose();
+        if (!ImageIO.write(image, "png", file.toFile())) {
+            throw new IOException("No PNG writer is available");
+        }
+    }
+
+    // Draws the edges and vertices that are in view. Labels are left out when there are too many of them to read.
+    private void drawGraph(Graphics2D g, int width, int height) {
+        int left = (int) Math.floor(originX - MARGIN / scale);
+        int top = (int) Math.floor(originY - MARGIN / scale);
+        int right = (int) Math.ceil(originX + (width + MARGIN) / scale);
+        int bottom = (int) Math.ceil(originY + (height + MARGIN) / scale);
+        boolean labels = index.countVerticesIn(left, top, right, bottom) <= LABEL_LIMIT;
+        int radius = (int) Math.max(1, Math.min(5, Math.round(5 * scale)));
+
+        index.forEachEdgeIn(left, top, right, bottom, e -> {
+            int weight = index.getEdgeWeight(e);
+            if (weight == 0) {
+                return;
+            }
+            int ax = screenX(index.getEdgeFrom(e));
+            int ay = screenY(index.getEdgeFrom(e));
+            int bx = screenX(index.getEdgeTo(e));
+            int by = screenY(index.getEdgeTo(e));
+            g.setColor(Color.BLACK);
+            g.drawLine(ax, ay, bx, by);
+            if (labels) {
+                g.setColor(Color.RED);
+                g.drawString(Integer.toString(weight), (ax + bx) / 2, (ay + by) / 2);
+            }
+        });
+        index.forEachVertexIn(left, top, right, bottom, v -> {
+            int x = screenX(v);
+            int y = screenY(v);
+            g.setColor(Color.BLACK);
+            g.fillOval(x - radius, y - radius, 2 * radius, 2 * radius);
+            if (labels) { // The name goes to the left of the vertex.
+                g.setColor(Color.BLUE);
+                g.drawString(graph.getName(v), x - 14, y + 5);
+            }
+        });
+    }
+
+    // Draws the highlighted path over the graph. Vertices that are not in the graph are skipped.
+    private void drawPath(Graphics2D g) {
+        Stroke stroke = g.getStroke();
+        g.setColor(PATH_COLOR);
+        g.setStroke(PATH_STROKE);
+        for (int i = 0; i + 1 < path.length; i++) {
+            if (inGraph(path[i]) && inGraph(path[i + 1])) {
+                g.drawLine(screenX(path[i]), screenY(path[i]), screenX(path[i + 1]), screenY(path[i + 1]));
+            }
+        }
+        g.setStroke(stroke);
+        for (int v : path) {
+            if (inGraph(v)) {
+                g.fillOval(screenX(v) - 5, screenY(v) - 5, 10, 10);
+            }
+        }
+    }
+
+    // Whether or not a vertex index is in the graph.
+    private boolean inGraph(int vertex) {
+        return vertex >= 0 && vertex < graph.getVertexCount();
+    }
+
+    // Gets the pixel x coordinate of a vertex in the current view.
+    private int screenX(int vertex) {
+        return (int) Math.round((graph.getX(vertex) - originX) * scale);
+    }
+
+    // Gets the pixel y coordinate of a vertex in the current view.
+    private int screenY(int vertex) {
+        return (int) Math.round((graph.getY(vertex) - originY) * scale);
+    }
+}
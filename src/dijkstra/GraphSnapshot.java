@@ -0,0 +1,109 @@
+package dijkstra;
+
+// An immutable, read-only copy of a graph in CSR form. Nothing in a snapshot changes after it is built, so any number of threads
+// can query the same snapshot at once without locking. CsrGraph builds a new snapshot the first time it is queried after a change;
+// snapshots that were handed out earlier keep describing the graph as it was.
+//
+// The array getters return the snapshot's own arrays so that the search loops can read them directly. They must not be modified.
+class GraphSnapshot {
+    private final int vertexCount; // The number of vertices
+    private final int[] offsets; // Row v of the CSR arrays runs from offsets[v] up to (but not including) offsets[v + 1]
+    private final int[] targets; // The neighbour in each CSR slot
+    private final int[] weights; // The edge weight in each CSR slot
+    private final String[] names; // The vertex names
+    private final int[] xs; // The vertex x coordinates
+    private final int[] ys; // The vertex y coordinates
+    private int maxWeight = -1; // The heaviest edge weight, worked out the first time it is asked for
+
+    public GraphSnapshot(int vertexCount, int[] offsets, int[] targets, int[] weights, String[] names, int[] xs, int[] ys) {
+        this.vertexCount = vertexCount;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.names = names;
+        this.xs = xs;
+        this.ys = ys;
+    }
+
+    // Gets the number of vertices.
+    public int getVertexCount() {
+        return vertexCount;
+    }
+
+    // Gets the heaviest edge weight, or 0 if there are no edges. It is worked out on first use; two threads that race just both
+    // work out the same answer.
+    public int getMaxWeight() {
+        int max = maxWeight;
+        if (max < 0) {
+            max = 0;
+            for (int weight : weights) {
+                max = Math.max(max, weight);
+            }
+            maxWeight = max;
+        }
+        return max;
+    }
+
+    // Gets the number of undirected edges. Each one takes up a slot in the rows of both of its endpoints.
+    public int getEdgeCount() {
+        return offsets[vertexCount] / 2;
+    }
+
+    // Gets the CSR offsets array.
+    public int[] getOffsets() {
+        return offsets;
+    }
+
+    // Gets the CSR targets array.
+    public int[] getTargets() {
+        return targets;
+    }
+
+    // Gets the CSR weights array, aligned with the targets array.
+    public int[] getWeights() {
+        return weights;
+    }
+
+    // Gets the name of a vertex.
+    public String getName(int vertex) {
+        return names[vertex];
+    }
+
+    // Gets the x coordinate of a vertex.
+    public int getX(int vertex) {
+        return xs[vertex];
+    }
+
+    // Gets the y coordinate of a vertex.
+    public int getY(int vertex) {
+        return ys[vertex];
+    }
+
+    // Gets the weight of the edge between two vertices, or -1 if they are not connected.
+    public int getWeight(int from, int to) {
+        for (int slot = offsets[from]; slot < offsets[from + 1]; slot++) {
+            if (targets[slot] == to) {
+                return weights[slot];
+            }
+        }
+        return -1;
+    }
+
+    // Formats the first length vertices of path as "Begin->A->B->...".
+    public String formatPath(int[] path, int length) {
+        StringBuilder pathString = new StringBuilder("Begin");
+        for (int i = 0; i < length; i++) {
+            pathString.append("->").append(names[path[i]]);
+        }
+        return pathString.toString();
+    }
+
+    // Formats the first length vertices of path, which runs end first, as "Begin->A->B->..." from the start.
+    public String formatEndFirstPath(int[] path, int length) {
+        StringBuilder pathString = new StringBuilder("Begin");
+        for (int i = length - 1; i >= 0; i--) {
+            pathString.append("->").append(names[path[i]]);
+        }
+        return pathString.toString();
+    }
+}
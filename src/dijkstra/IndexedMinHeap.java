@@ -0,0 +1,194 @@
+package dijkstra;
+
+import java.util.Arrays;
+
+// An indexed d-ary min-heap of vertex ids keyed by int distances, for use as the frontier in Dijkstra's algorithm.
+// Everything is stored in primitive arrays, so nothing is boxed. position[id] tracks where each id sits in the heap,
+// which is what makes decreaseKey possible without searching for the entry.
+class IndexedMinHeap {
+    private final int arity; // The number of children per node (2 for a binary heap, 4 for a 4-ary heap, ...)
+    private int[] heapIds; // The vertex ids in heap order
+    private int[] heapKeys; // The keys, in the same order as heapIds
+    private int[] position; // The index of each vertex id in heapIds, or -1 if it is not in the heap
+    private int size; // The number of entries in the heap
+
+    public IndexedMinHeap(int capacity, int arity) {
+        if (arity < 2) {
+            throw new IllegalArgumentException("Heap arity must be at least 2");
+        }
+        this.arity = arity;
+        this.heapIds = new int[capacity];
+        this.heapKeys = new int[capacity];
+        this.position = new int[capacity];
+        Arrays.fill(position, -1);
+    }
+
+    // A binary heap.
+    public IndexedMinHeap(int capacity) {
+        this(capacity, 2);
+    }
+
+    // Gets the number of children per node.
+    public int getArity() {
+        return arity;
+    }
+
+    // Gets the largest vertex id + 1 that the heap can hold.
+    public int getCapacity() {
+        return position.length;
+    }
+
+    // Grows the heap so that it can hold vertex ids up to capacity - 1. Existing entries are kept.
+    public void ensureCapacity(int capacity) {
+        if (capacity <= position.length) {
+            return;
+        }
+        int oldLength = position.length;
+        heapIds = Arrays.copyOf(heapIds, capacity);
+        heapKeys = Arrays.copyOf(heapKeys, capacity);
+        position = Arrays.copyOf(position, capacity);
+        Arrays.fill(position, oldLength, capacity, -1);
+    }
+
+    // Gets the number of entries in the heap.
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // Whether or not the vertex id is currently in the heap.
+    public boolean contains(int id) {
+        return position[id] >= 0;
+    }
+
+    // Gets the key of a vertex id that is in the heap.
+    public int getKey(int id) {
+        return heapKeys[position[id]];
+    }
+
+    // Gets the id with the smallest key without removing it.
+    public int peekMin() {
+        return heapIds[0];
+    }
+
+    // Gets the smallest key in the heap.
+    public int peekMinKey() {
+        return heapKeys[0];
+    }
+
+    // Adds a vertex id that is not already in the heap.
+    public void insert(int id, int key) {
+        int index = size++;
+        heapIds[index] = id;
+        heapKeys[index] = key;
+        position[id] = index;
+        siftUp(index);
+    }
+
+    // Lowers the key of a vertex id that is in the heap.
+    public void decreaseKey(int id, int key) {
+        int index = position[id];
+        heapKeys[index] = key;
+        siftUp(index);
+    }
+
+    // Inserts the vertex id, or lowers its key if it is already in the heap with a larger key. Returns whether or not the heap changed.
+    public boolean insertOrDecrease(int id, int key) {
+        int index = position[id];
+        if (index < 0) {
+            insert(id, key);
+            return true;
+        }
+        if (key < heapKeys[index]) {
+            heapKeys[index] = key;
+            siftUp(index);
+            return true;
+        }
+        return false;
+    }
+
+    // Sets the key of a vertex id that is in the heap, whether that moves it up or down.
+    public void changeKey(int id, int key) {
+        int index = position[id];
+        int oldKey = heapKeys[index];
+        heapKeys[index] = key;
+        if (key < oldKey) {
+            siftUp(index);
+        } else {
+            siftDown(index);
+        }
+    }
+
+    // Removes and returns the id with the smallest key.
+    public int pollMin() {
+        int min = heapIds[0];
+        position[min] = -1;
+        size--;
+        if (size > 0) { // Move the last entry to the root and let it sink back down.
+            heapIds[0] = heapIds[size];
+            heapKeys[0] = heapKeys[size];
+            position[heapIds[0]] = 0;
+            siftDown(0);
+        }
+        return min;
+    }
+
+    // Removes every entry. This costs O(size), not O(capacity), so the heap can be reused between queries.
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            position[heapIds[i]] = -1;
+        }
+        size = 0;
+    }
+
+    // Moves the entry at index up until its parent is no larger than it.
+    private void siftUp(int index) {
+        int id = heapIds[index];
+        int key = heapKeys[index];
+        while (index > 0) {
+            int parent = (index - 1) / arity;
+            if (heapKeys[parent] <= key) {
+                break;
+            }
+            heapIds[index] = heapIds[parent]; // Shift the parent down instead of swapping, and write the entry once at the end.
+            heapKeys[index] = heapKeys[parent];
+            position[heapIds[index]] = index;
+            index = parent;
+        }
+        heapIds[index] = id;
+        heapKeys[index] = key;
+        position[id] = index;
+    }
+
+    // Moves the entry at index down until none of its children are smaller than it.
+    private void siftDown(int index) {
+        int id = heapIds[index];
+        int key = heapKeys[index];
+        while (true) {
+            int firstChild = index * arity + 1;
+            if (firstChild >= size) {
+                break;
+            }
+            int lastChild = Math.min(firstChild + arity, size);
+            int best = firstChild;
+            for (int child = firstChild + 1; child < lastChild; child++) { // Find the smallest child.
+                if (heapKeys[child] < heapKeys[best]) {
+                    best = child;
+                }
+            }
+            if (heapKeys[best] >= key) {
+                break;
+            }
+            heapIds[index] = heapIds[best];
+            heapKeys[index] = heapKeys[best];
+            position[heapIds[index]] = index;
+            index = best;
+        }
+        heapIds[index] = id;
+        heapKeys[index] = key;
+        position[id] = index;
+    }
+}
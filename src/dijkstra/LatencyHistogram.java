@@ -0,0 +1,83 @@
+package dijkstra;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// A histogram of latencies in nanoseconds, in the style of HdrHistogram: values are counted in log-linear buckets, so every value
+// is kept to within 1% (1/128) however large it is, in a fixed 58 KB of counters and without allocating.
+// Each power of two is split into 128 equal buckets; values below 256 get a bucket each. Any number of threads can record at once.
+class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 8; // Values below 2^8 are exact, and every power of two above is split 128 ways
+    private static final int HALF_SUB_BUCKETS = 1 << (SUB_BUCKET_BITS - 1);
+    private static final int BUCKET_COUNT = (63 - SUB_BUCKET_BITS + 1) * HALF_SUB_BUCKETS + 2 * HALF_SUB_BUCKETS;
+
+    private final AtomicLongArray counts;
+
+    public LatencyHistogram() {
+        this.counts = new AtomicLongArray(BUCKET_COUNT);
+    }
+
+    private LatencyHistogram(AtomicLongArray counts) {
+        this.counts = counts;
+    }
+
+    // Counts one value. Negative values are counted as 0.
+    public void record(long value) {
+        counts.incrementAndGet(bucketOf(Math.max(value, 0)));
+    }
+
+    // Gets the number of values recorded.
+    public long getCount() {
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+
+    // Gets the value that percentile percent of the recorded values are at or below, e.g. 99.9. Returns 0 if nothing was recorded.
+    // The answer is the largest value in its bucket, so it is never lower than the true percentile.
+    public long getValueAtPercentile(double percentile) {
+        long total = getCount();
+        if (total == 0) {
+            return 0;
+        }
+        long wanted = Math.max(1, (long) Math.ceil(total * Math.min(percentile, 100.0) / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts.get(i);
+            if (seen >= wanted) {
+                return highestValueIn(i);
+            }
+        }
+        return highestValueIn(BUCKET_COUNT - 1);
+    }
+
+    // Makes a copy of the counts as they are now, for reading percentiles while recording carries on.
+    public LatencyHistogram copy() {
+        AtomicLongArray copy = new AtomicLongArray(BUCKET_COUNT);
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            copy.set(i, counts.get(i));
+        }
+        return new LatencyHistogram(copy);
+    }
+
+    // Forgets every value.
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.set(i, 0);
+        }
+    }
+
+    // Gets the bucket a value is counted in. The top SUB_BUCKET_BITS bits of the value pick the bucket within its power of two.
+    private static int bucketOf(long value) {
+        int shift = Math.max(0, 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1));
+        return shift * HALF_SUB_BUCKETS + (int) (value >>> shift);
+    }
+
+    // Gets the largest value that is counted in a bucket.
+    private static long highestValueIn(int bucket) {
+        int shift = bucket < 2 * HALF_SUB_BUCKETS ? 0 : bucket / HALF_SUB_BUCKETS - 1;
+        long lowest = (long) (bucket - shift * HALF_SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
@@ -1,58 +1,14 @@
+package dijkstra;
+
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.Arrays;
-
-// The following is a vertex class to go with our graph class.
-class Vertex {
-    private String name;
-    private int x;
-    private int y;
-
-    // Constructor
-    public Vertex(String name, int x, int y){
-        this.name = name;
-        this.x = x;
-        this.y = y;
-    }
-
-    // Another constructor where x and y are random numbers between 20 and 480. However, no vertex can be within 20 pixels of another vertex.
-    public Vertex(String name, Vertex[] vertices){
-        this.name = name;
-        this.x = (int)(Math.random() * 430) + 50;
-        this.y = (int)(Math.random() * 430) + 50;
-        for(Vertex v : vertices){
-            if (v != null) {
-                if (Math.abs(v.getX() - this.x) < 50 || Math.abs(v.getY() - this.y) < 50) {
-                    this.x = (int) (Math.random() * 430) + 50;
-                    this.y = (int) (Math.random() * 430) + 50;
-                }
-            }
-        }
-    }
-
-    // Getters
-    public String getName(){
-        return name;
-    }
-    public int getX(){
-        return x;
-    }
-    public int getY(){
-        return y;
-    }
-
-    // Setters
-    public void setName(String name){
-        this.name = name;
-    }
-    public void setX(int x){
-        this.x = x;
-    }
-    public void setY(int y){
-        this.y = y;
-    }
-}
 
 // The following is a fully functional graph class.
 class Graph {
@@ -122,6 +78,22 @@ class Graph {
     }
 
 
+    // Adds many edges at once. Both directions of each edge are written directly, so the graph stays symmetric without a
+    // makeSymmetric() pass per edge; loading E edges costs O(E) instead of O(E * V^2). If an edge appears more than once, the last one wins.
+    public void addEdges(int[] from, int[] to, int[] weight) {
+        for (int i = 0; i < from.length; i++) {
+            if (edgeCount == maxEdgeCount) {
+                System.out.println("Graph is full");
+                return;
+            }
+            adjMatrix[from[i]][to[i]] = 1;
+            adjMatrix[to[i]][from[i]] = 1;
+            weights[from[i]][to[i]] = weight[i];
+            weights[to[i]][from[i]] = weight[i];
+            edgeCount++;
+        }
+    }
+
     // Prints the path from the start vertex to the end vertex.
     public String getStringPath() {
         return stringPath;
@@ -259,42 +231,97 @@ class Graph {
         this.adjMatrix[to][from] = 0;
     }
 
+    // Copies this graph into a CsrGraph with the same vertices and edges.
+    public CsrGraph toCsr() {
+        CsrGraph csr = new CsrGraph(maxVertexCount, Math.max(edgeCount, 1));
+        for (int i = 0; i < vertexCount; i++) {
+            csr.addVertex(vertices[i]);
+        }
+        for (int i = 0; i < vertexCount; i++) {
+            for (int j = i; j < vertexCount; j++) { // The matrix is symmetric, so only the upper triangle is needed.
+                if (adjMatrix[i][j] != 0) {
+                    csr.addEdge(i, j, weights[i][j]);
+                }
+            }
+        }
+        return csr;
+    }
+
+    // Gets an immutable snapshot of this graph that can be queried from many threads.
+    public GraphSnapshot snapshot() {
+        return toCsr().snapshot();
+    }
+
 }
 
 // Implements graphPanel class.
 class GraphPanel extends JPanel {
 
-    Graph graph = null;
+    CsrGraph graph = null;
+    private GraphRenderer renderer; // Draws the graph, keeping the drawing between repaints
+    private long renderedVersion; // The graph version that the renderer was made for
+    private int[] route = new int[0]; // The highlighted path
+    private Point dragFrom; // Where the mouse was on the last drag event
 
-    // Creates a graphPanel object.
-    public GraphPanel(Graph g) {
+    // Creates a graphPanel object. Dragging pans the graph and the mouse wheel zooms it.
+    public GraphPanel(CsrGraph g) {
         this.graph = g;
         setBackground(Color.WHITE);
+        MouseAdapter mouse = new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                dragFrom = e.getPoint();
+            }
+
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                renderer().pan(e.getX() - dragFrom.x, e.getY() - dragFrom.y);
+                dragFrom = e.getPoint();
+                repaint();
+            }
+
+            @Override
+            public void mouseWheelMoved(MouseWheelEvent e) {
+                renderer().zoom(Math.pow(1.1, -e.getPreciseWheelRotation()), e.getX(), e.getY());
+                repaint();
+            }
+        };
+        addMouseListener(mouse);
+        addMouseMotionListener(mouse);
+        addMouseWheelListener(mouse);
+    }
+
+    // Creates a graphPanel object for a matrix-backed graph.
+    public GraphPanel(Graph g) {
+        this(g.toCsr());
+    }
+
+    // Highlights a path, such as the array that dijkstra returns. Only the path is redrawn.
+    public void setPath(int[] path) {
+        this.route = path.clone();
+        renderer().setPath(route);
+        repaint();
     }
 
     // Draws the graph such that vertices are black elipses and edges are black lines connecting them. Edge weights are displayed on the edges if they are not 0.
+    // The graph is only redrawn when the view, the size or the graph changes; otherwise the last drawing is reused and only the path is drawn over it.
     public void paintComponent(Graphics g) {
         super.paintComponent(g);
-        int[][] adjMatrix = graph.getAdjMatrix();
-        for (int i = 0; i < graph.getVertexCount(); i++) {
-            for (int j = 0; j < graph.getVertexCount(); j++) {
-                if (adjMatrix[i][j] == 1) {
-                    g.setColor(Color.BLACK);
-                    if (graph.getWeights()[i][j] != 0) {
-                        g.drawLine(graph.getVertices()[i].getX(), graph.getVertices()[i].getY(), graph.getVertices()[j].getX(), graph.getVertices()[j].getY());
-                        g.setColor(Color.RED);
-                        g.drawString(Integer.toString(graph.getWeights()[i][j]), (graph.getVertices()[i].getX() + graph.getVertices()[j].getX()) / 2, (graph.getVertices()[i].getY() + graph.getVertices()[j].getY()) / 2);
-                    }
-                }
+        renderer().paint((Graphics2D) g, getWidth(), getHeight());
+    }
+
+    // Gets the renderer, making a new one if the graph has changed since it was made. The view and the path are kept.
+    private GraphRenderer renderer() {
+        if (renderer == null || renderedVersion != graph.getVersion()) {
+            GraphRenderer fresh = new GraphRenderer(graph.snapshot());
+            if (renderer != null) {
+                fresh.setView(renderer.getOriginX(), renderer.getOriginY(), renderer.getScale());
             }
+            fresh.setPath(route);
+            renderer = fresh;
+            renderedVersion = graph.getVersion();
         }
-        for (int i = 0; i < graph.getVertexCount(); i++) {
-            g.setColor(Color.BLACK);
-            g.fillOval(graph.getVertices()[i].getX() - 5, graph.getVertices()[i].getY() - 5, 10, 10);
-            // Draws the names of the vertices to the left of the vertices, in green.
-            g.setColor(Color.BLUE);
-            g.drawString(graph.getVertices()[i].getName(), graph.getVertices()[i].getX() - 14, graph.getVertices()[i].getY() + 5);
-        }
+        return renderer;
     }
 }
 
@@ -324,8 +351,31 @@ public class Main {
         }
     }
 
+    // Draws a visually representation of our CsrGraph class.
+    public static void drawGraph(CsrGraph graph) {
+        int[] offsets = graph.getOffsets(); // Gets the CSR rows of the graph.
+        int[] targets = graph.getTargets();
+        for (int i = 0; i < graph.getVertexCount(); i++) { // For each vertex in the graph.
+            for (int slot = offsets[i]; slot < offsets[i + 1]; slot++) { // For each neighbour of the vertex.
+                //System.out.println("Draw edge from " + graph.getVertices()[i].getName() + " to " + graph.getVertices()[targets[slot]].getName()); // Prints the edge.
+            }
+        }
+    }
+
     // Using Swing, open a new window and in it, paint a visual representation of our Graph class.
     public static JFrame visualizeGraph(Graph graph, String path) {
+        return visualizeGraph(graph.toCsr(), path);
+    }
+
+    // Using Swing, open a new window and in it, paint a visual representation of our CsrGraph class.
+    public static JFrame visualizeGraph(CsrGraph graph, String path) {
+        return visualizeGraph(graph, path, new int[0]);
+    }
+
+    // Using Swing, open a new window and in it, paint a visual representation of our CsrGraph class with the route highlighted.
+    public static JFrame visualizeGraph(CsrGraph graph, String path, int[] route) {
+        GraphPanel panel = new GraphPanel(graph); // Our custom class that draws the graph.
+        panel.setPath(route);
         JFrame frame = new JFrame(); // Creates a new JFrame.
 
         frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE); // Sets the default close operation to exit the program.
@@ -333,7 +383,7 @@ public class Main {
         frame.setVisible(true); // Makes the JFrame visible.
         frame.add(new JLabel("Dijkstra's Algorithm"), BorderLayout.NORTH); // Adds a JLabel to the JFrame for our text.
         frame.add(new JLabel("Collins, Bales - 3310 Project | " + path), BorderLayout.SOUTH); // Adds a JLabel to the JFrame for our text.
-        frame.add(new GraphPanel(graph)); // Adds a GraphPanel to the JFrame, our custom class that draws the graph.
+        frame.add(panel); // Adds the GraphPanel to the JFrame.
 
         // Add a black border around the JFrame.
         frame.getRootPane().setBorder(BorderFactory.createLineBorder(Color.BLACK, 2));
@@ -341,15 +391,24 @@ public class Main {
         return frame;
     }
 
+    // Renders the graph with the route highlighted straight to a PNG file, scaled to fit. No window is opened, so this works headless.
+    public static void renderToPng(CsrGraph graph, int[] route, Path file, int width, int height) throws IOException {
+        GraphRenderer renderer = new GraphRenderer(graph.snapshot());
+        renderer.fit(width, height);
+        renderer.setPath(route);
+        renderer.writePng(file, width, height);
+    }
+
 
-    public static void main(String[] args) {
+    // Pass a file name, or run headless, to save the picture as a PNG instead of opening a window.
+    public static void main(String[] args) throws IOException {
         int extraX = 45;
         int extraY = 0;
         int xDiv = 3;
         int yDiv = 2;
 
-        // Create a graph of 5 vertices and 5 edges using our Graph class.
-        Graph graph = new Graph(20, 27); // 5 vertices, 7 edges.
+        // Create a graph of 20 vertices and 26 edges using our CsrGraph class.
+        CsrGraph graph = new CsrGraph(20, 26); // 20 vertices, 26 edges.
         graph.addVertex(new Vertex("A", 100/xDiv + extraX, 150/yDiv + extraY)); // 0
         graph.addVertex(new Vertex("B", 335/xDiv + extraX, 150/yDiv + extraY)); // 1
         graph.addVertex(new Vertex("C", 565/xDiv + extraX, 150/yDiv + extraY)); // 2
@@ -406,9 +465,6 @@ public class Main {
         graph.addEdge(9, 14, 260); // J -> N
         graph.addEdge(14, 19, 110); // N -> S
 
-        // Edge from S to O.
-        graph.addEdge(19, 15, 0); // S and O are our "exits," so in order for the algorithm to work, we need to add an edge from S to O with a weight of 0 so as to allow either S or O to be the "exit" vertex.
-
         // Restrictions. These correspond to obstructions in the graph.
         //graph.restrict(5, 15); // F and O
         // L and K
@@ -420,15 +476,43 @@ public class Main {
 
 
 
-        // The destination can be either vertex 19 or vertex 15, corresponding to S or O, our "exits."
-        // It effectively means that the destination vertex is the closest "exit" vertex, since if we arrive to either S or O, we also arrive at the other, since they have a distance of 0 between each other.
-        // Therefore, we should NEVER have a destination vertex value of anything but 19 or 15 if we are wanting the exit.
+        // S and O are our "exits," so the destination is whichever of them is closest. The search stops as soon as it reaches either one.
         // List of vertex indices and their respective names:
         // 0 = A, 1 = B, 2 = C, 3 = D, 4 = E, 5 = F, 6 = G, 7 = H, 8 = I, 9 = J, 10 = T, 11 = K, 12 = L, 13 = M, 14 = N, 15 = O, 16 = P, 17 = Q, 18 = R, 19 = S
-        graph.dijkstra(graph, 3, 19);
+        graph.addPathListener(new ConsolePathPrinter());
+        int[] route = graph.nearestExit(3, 15, 19);
+
+        // Start from wherever someone is standing instead of from a room, for example a clicked point or a phone's location.
+        //graph.nearestExit(graph.nearestVertex(300, 120), 15, 19);
 
-        // Print the adjacency matrix.
-        //graph.printAdjMatrixWithNames();
+        // Count what every query does and time it, and publish the numbers over JMX for jconsole or VisualVM.
+        //QueryMetrics metrics = QueryMetrics.enable();
+        //metrics.registerMBeans();
+        //graph.nearestExit(3, 15, 19);
+        //System.out.print(metrics.report());
+
+        // Precompute the nearest exit of every room at once.
+        //NearestExits exits = NearestExits.compute(graph, 15, 19);
+
+        // Keep the nearest exit labels up to date as obstructions appear, repairing only the rooms whose route went through them.
+        //DynamicShortestPathTree evacuation = new DynamicShortestPathTree(graph, 15, 19);
+        //graph.restrict(3, 8); // D and I; the tree repairs itself.
+
+        // Preprocess the graph into a contraction hierarchy and compare its query speed with plain Dijkstra.
+        //System.out.println(ContractionHierarchy.build(graph.snapshot()).report(graph.snapshot(), 1000, 42));
+
+        // Load a road network instead of the floor plan, for example one of the DIMACS challenge graphs.
+        //GraphImporter importer = new GraphImporter();
+        //CsrGraph roads = importer.readDimacs(Paths.get("USA-road-d.NY.gr"), Paths.get("USA-road-d.NY.co"));
+        //System.out.println(importer.report());
+
+        // Save the graph with its exit labels, then map it back in. Reopening takes milliseconds, whatever the size of the graph.
+        //MappedGraph.write(graph, NearestExits.compute(graph, 15, 19), Paths.get("floor.graph"));
+        //MappedGraph saved = MappedGraph.open(Paths.get("floor.graph"));
+        //System.out.println(saved.formatPath(saved.getExitRoute(3), saved.getExitRoute(3).length));
+
+        // Print the adjacency lists.
+        //graph.printAdjacency();
 
         // Print the adjacency list.
         drawGraph(graph);
@@ -438,8 +522,12 @@ public class Main {
         // Calculate the shortest path and store the results in a string.
         String ourPath = "Shortest Path: " + graph.getStringPath();
 
-        // Visualize the graph.
-        visualizeGraph(graph, ourPath);
+        // Visualize the graph, or save it to a file if there is no screen to show it on.
+        if (args.length > 0 || GraphicsEnvironment.isHeadless()) {
+            renderToPng(graph, route, Paths.get(args.length > 0 ? args[0] : "graph.png"), 500, 500);
+            return;
+        }
+        visualizeGraph(graph, ourPath, route);
 
 
 
@@ -0,0 +1,478 @@
+package dijkstra;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// A graph saved in a compact binary file and opened again by memory-mapping it. Opening only maps the file and checks its header,
+// so it takes milliseconds however big the graph is; pages are read in by the operating system as queries touch them, and every
+// JVM on the host that opens the same file shares the same pages. Queries run straight off the mapped pages through
+// ShortestPathContext, and the nearest exit labels, if the file has them, are read the same way. toSnapshot() copies the graph
+// onto the heap for the searches that need arrays.
+//
+// Each section is mapped as one ByteBuffer, and a ByteBuffer holds at most Integer.MAX_VALUE bytes, so no section can be bigger
+// than 2 GB. The largest sections are the targets and weights, with one int per CSR slot and two slots per undirected edge, which
+// caps a file at about 536 million slots, or 268 million edges. The file as a whole can be bigger; write refuses a graph that would
+// break the limit, and open refuses a file that does.
+//
+// The file is little-endian. It starts with a header and a table of contents, and every section is 8-byte aligned:
+//   int magic ("DJKG"), int format version, int vertex count, int section count
+//   section count * (int section id, int reserved, long offset, long length in bytes)
+//   the sections, in any order
+// Sections with ids a reader does not know are skipped, so later versions can add more without breaking older readers.
+class MappedGraph {
+    public static final int MAGIC = 0x444A4B47; // "DJKG"
+    public static final int FORMAT_VERSION = 1;
+
+    // The section ids. Every section is an array of ints except NAME_BYTES.
+    private static final int OFFSETS = 1; // The CSR offsets, vertex count + 1 entries
+    private static final int TARGETS = 2; // The CSR targets
+    private static final int WEIGHTS = 3; // The CSR weights
+    private static final int XS = 4; // The vertex x coordinates
+    private static final int YS = 5; // The vertex y coordinates
+    private static final int NAME_OFFSETS = 6; // Where each vertex's name starts in NAME_BYTES, vertex count + 1 entries
+    private static final int NAME_BYTES = 7; // The vertex names in UTF-8, one after another
+    private static final int RESTRICTED = 8; // Restricted edges as (from, to, weight) triples
+    private static final int EXITS = 9; // The exits the labels below were computed for
+    private static final int EXIT_DISTANCE = 10; // Each vertex's distance to its nearest exit
+    private static final int EXIT_NEXT_HOP = 11; // Each vertex's next hop towards its nearest exit
+    private static final int EXIT_OF = 12; // Each vertex's nearest exit
+    private static final int SECTION_LIMIT = 13;
+
+    private static final int HEADER_BYTES = 16;
+    private static final int ENTRY_BYTES = 24;
+
+    private final int vertexCount;
+    private final IntBuffer offsets;
+    private final IntBuffer targets;
+    private final IntBuffer weights;
+    private final IntBuffer xs;
+    private final IntBuffer ys;
+    private final IntBuffer nameOffsets;
+    private final ByteBuffer nameBytes;
+    private final IntBuffer restricted;
+    private final IntBuffer exits; // null if the file has no exit labels
+    private final IntBuffer exitDistance;
+    private final IntBuffer exitNextHop;
+    private final IntBuffer exitOf;
+
+    private MappedGraph(int vertexCount, ByteBuffer[] sections) {
+        this.vertexCount = vertexCount;
+        this.offsets = ints(sections[OFFSETS]);
+        this.targets = ints(sections[TARGETS]);
+        this.weights = ints(sections[WEIGHTS]);
+        this.xs = ints(sections[XS]);
+        this.ys = ints(sections[YS]);
+        this.nameOffsets = ints(sections[NAME_OFFSETS]);
+        this.nameBytes = sections[NAME_BYTES];
+        this.restricted = ints(sections[RESTRICTED]);
+        this.exits = ints(sections[EXITS]);
+        this.exitDistance = ints(sections[EXIT_DISTANCE]);
+        this.exitNextHop = ints(sections[EXIT_NEXT_HOP]);
+        this.exitOf = ints(sections[EXIT_OF]);
+    }
+
+    // Saves a graph, including its restricted edges.
+    public static void write(CsrGraph graph, Path file) throws IOException {
+        write(graph, null, file);
+    }
+
+    // Saves a graph along with its nearest exit labels, so they do not have to be computed again when the file is opened.
+    public static void write(CsrGraph graph, NearestExits exitLabels, Path file) throws IOException {
+        GraphSnapshot snapshot = graph.snapshot();
+        int vertexCount = snapshot.getVertexCount();
+        int[] xs = new int[vertexCount];
+        int[] ys = new int[vertexCount];
+        int[] nameOffsets = new int[vertexCount + 1];
+        byte[][] names = new byte[vertexCount][];
+        for (int v = 0; v < vertexCount; v++) {
+            xs[v] = snapshot.getX(v);
+            ys[v] = snapshot.getY(v);
+            names[v] = snapshot.getName(v).getBytes(StandardCharsets.UTF_8);
+            nameOffsets[v + 1] = nameOffsets[v] + names[v].length;
+        }
+
+        int[][] sections = new int[SECTION_LIMIT][];
+        sections[OFFSETS] = snapshot.getOffsets();
+        sections[TARGETS] = snapshot.getTargets();
+        sections[WEIGHTS] = snapshot.getWeights();
+        sections[XS] = xs;
+        sections[YS] = ys;
+        sections[NAME_OFFSETS] = nameOffsets;
+        sections[RESTRICTED] = graph.getRestrictedEdges();
+        if (exitLabels != null) {
+            int[] distance = new int[vertexCount];
+            int[] nextHop = new int[vertexCount];
+            int[] exitOf = new int[vertexCount];
+            for (int v = 0; v < vertexCount; v++) {
+                distance[v] = exitLabels.getDistance(v);
+                nextHop[v] = exitLabels.getNextHop(v);
+                exitOf[v] = exitLabels.getExit(v);
+            }
+            sections[EXITS] = exitLabels.getExits();
+            sections[EXIT_DISTANCE] = distance;
+            sections[EXIT_NEXT_HOP] = nextHop;
+            sections[EXIT_OF] = exitOf;
+        }
+        long[] lengths = new long[SECTION_LIMIT];
+        int sectionCount = 0;
+        for (int id = 1; id < SECTION_LIMIT; id++) {
+            if (id == NAME_BYTES) {
+                lengths[id] = nameOffsets[vertexCount];
+            } else if (sections[id] != null) {
+                int used = id == TARGETS || id == WEIGHTS ? snapshot.getOffsets()[vertexCount] : sections[id].length; // The CSR arrays can have spare room at the end.
+                lengths[id] = 4L * used;
+            } else {
+                continue;
+            }
+            if (lengths[id] > Integer.MAX_VALUE) {
+                throw new IOException("Section " + id + " of " + file + " would be " + lengths[id] + " bytes, more than one mapping can hold");
+            }
+            sectionCount++;
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES + ENTRY_BYTES * sectionCount).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(vertexCount).putInt(sectionCount);
+        long position = align(header.capacity());
+        long[] positions = new long[SECTION_LIMIT];
+        for (int id = 1; id < SECTION_LIMIT; id++) {
+            if (sections[id] != null || id == NAME_BYTES) {
+                positions[id] = position;
+                header.putInt(id).putInt(0).putLong(position).putLong(lengths[id]);
+                position = align(position + lengths[id]);
+            }
+        }
+        header.flip();
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(channel, header, 0);
+            ByteBuffer chunk = ByteBuffer.allocate(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+            for (int id = 1; id < SECTION_LIMIT; id++) {
+                if (id == NAME_BYTES) {
+                    long at = positions[id];
+                    for (byte[] name : names) {
+                        if (chunk.remaining() < name.length) {
+                            chunk.flip();
+                            at += writeFully(channel, chunk, at);
+                            chunk.clear();
+                        }
+                        if (name.length > chunk.capacity()) { // Too long to batch up with the others.
+                            at += writeFully(channel, ByteBuffer.wrap(name), at);
+                        } else {
+                            chunk.put(name);
+                        }
+                    }
+                    chunk.flip();
+                    writeFully(channel, chunk, at);
+                    chunk.clear();
+                } else if (sections[id] != null) {
+                    long at = positions[id];
+                    int count = (int) (lengths[id] / 4);
+                    for (int start = 0; start < count; start += chunk.capacity() / 4) {
+                        int end = Math.min(count, start + chunk.capacity() / 4);
+                        chunk.asIntBuffer().put(sections[id], start, end - start);
+                        chunk.limit((end - start) * 4);
+                        at += writeFully(channel, chunk, at);
+                        chunk.clear();
+                    }
+                }
+            }
+            if (channel.size() < position) { // Pad out to the aligned end, so that an empty last section still lies inside the file.
+                writeFully(channel, ByteBuffer.allocate((int) (position - channel.size())), channel.size());
+            }
+        }
+    }
+
+    // Opens a graph file by mapping it into memory. Nothing is copied onto the heap. The header, the table of contents and the size
+    // of every section are checked against each other, so a corrupt or truncated file is an IOException here rather than an
+    // IndexOutOfBoundsException in a later query. What is inside the sections is not checked, which would mean reading all of it.
+    public static MappedGraph open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) { // The mappings stay valid after the channel is closed.
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, header, 0);
+            if (header.getInt(0) != MAGIC) {
+                throw new IOException(file + " is not a graph file");
+            }
+            if (header.getInt(4) != FORMAT_VERSION) {
+                throw new IOException(file + " is graph format version " + header.getInt(4) + ", but only version " + FORMAT_VERSION
+                        + " is supported");
+            }
+            int vertexCount = header.getInt(8);
+            int sectionCount = header.getInt(12);
+            if (vertexCount < 0 || vertexCount == Integer.MAX_VALUE) {
+                throw new IOException(file + " has an invalid vertex count, " + vertexCount);
+            }
+            if (sectionCount < 0 || HEADER_BYTES + (long) ENTRY_BYTES * sectionCount > channel.size()) {
+                throw new IOException(file + " has an invalid section count, " + sectionCount);
+            }
+            ByteBuffer table = ByteBuffer.allocate(ENTRY_BYTES * sectionCount).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, table, HEADER_BYTES);
+
+            // Files that fit in one mapping are mapped whole and cut into sections, so each open costs the process one mapping
+            // instead of one per section. Bigger files map each section on its own.
+            MappedByteBuffer whole = channel.size() <= Integer.MAX_VALUE ? channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()) : null;
+            ByteBuffer[] sections = new ByteBuffer[SECTION_LIMIT];
+            for (int i = 0; i < sectionCount; i++) {
+                int id = table.getInt(i * ENTRY_BYTES);
+                long offset = table.getLong(i * ENTRY_BYTES + 8);
+                long length = table.getLong(i * ENTRY_BYTES + 16);
+                if (id <= 0 || id >= SECTION_LIMIT) {
+                    continue; // A section from a later version.
+                }
+                if (sections[id] != null) {
+                    throw new IOException(file + " has section " + id + " more than once");
+                }
+                if (offset < 0 || length < 0) {
+                    throw new IOException("Section " + id + " of " + file + " has a negative offset or length");
+                }
+                if (length > Integer.MAX_VALUE) {
+                    throw new IOException("Section " + id + " of " + file + " is larger than one mapping can hold");
+                }
+                if (offset > channel.size() - length) {
+                    throw new IOException(file + " is truncated");
+                }
+                ByteBuffer mapped = whole != null ? whole.slice((int) offset, (int) length) : channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+                sections[id] = mapped.order(ByteOrder.LITTLE_ENDIAN);
+            }
+            for (int id = OFFSETS; id <= RESTRICTED; id++) {
+                if (sections[id] == null) {
+                    throw new IOException(file + " is missing section " + id);
+                }
+            }
+            checkSizes(file, vertexCount, sections);
+            return new MappedGraph(vertexCount, sections);
+        }
+    }
+
+    // Checks that every section is as long as the vertex count and the other sections say it should be.
+    private static void checkSizes(Path file, int vertexCount, ByteBuffer[] sections) throws IOException {
+        checkLength(file, sections, OFFSETS, vertexCount + 1L);
+        checkLength(file, sections, XS, vertexCount);
+        checkLength(file, sections, YS, vertexCount);
+        checkLength(file, sections, NAME_OFFSETS, vertexCount + 1L);
+        ByteBuffer offsets = sections[OFFSETS];
+        int slotCount = offsets.getInt(4 * vertexCount);
+        if (offsets.getInt(0) != 0 || slotCount < 0) {
+            throw new IOException(file + " has invalid edge offsets");
+        }
+        checkLength(file, sections, TARGETS, slotCount);
+        checkLength(file, sections, WEIGHTS, slotCount);
+        ByteBuffer nameOffsets = sections[NAME_OFFSETS];
+        if (nameOffsets.getInt(0) != 0 || nameOffsets.getInt(4 * vertexCount) != sections[NAME_BYTES].limit()) {
+            throw new IOException(file + " has invalid name offsets");
+        }
+        if (sections[RESTRICTED].limit() % 12 != 0) {
+            throw new IOException("Section " + RESTRICTED + " of " + file + " is not a whole number of restricted edges");
+        }
+        if (sections[EXITS] != null || sections[EXIT_DISTANCE] != null || sections[EXIT_NEXT_HOP] != null || sections[EXIT_OF] != null) {
+            if (sections[EXITS] == null || sections[EXITS].limit() % 4 != 0) {
+                throw new IOException(file + " has exit labels but no valid list of exits");
+            }
+            checkLength(file, sections, EXIT_DISTANCE, vertexCount);
+            checkLength(file, sections, EXIT_NEXT_HOP, vertexCount);
+            checkLength(file, sections, EXIT_OF, vertexCount);
+        }
+    }
+
+    // Checks that a section holds exactly count ints.
+    private static void checkLength(Path file, ByteBuffer[] sections, int id, long count) throws IOException {
+        if (sections[id] == null || sections[id].limit() != 4 * count) {
+            throw new IOException("Section " + id + " of " + file + " should hold " + count + " ints, but holds "
+                    + (sections[id] == null ? 0 : sections[id].limit()) + " bytes");
+        }
+    }
+
+    // Gets the number of vertices.
+    public int getVertexCount() {
+        return vertexCount;
+    }
+
+    // Gets the number of undirected edges.
+    public int getEdgeCount() {
+        return offsets.get(vertexCount) / 2;
+    }
+
+    // Gets the name of a vertex. This decodes it from the file, so it makes a new String each time.
+    public String getName(int vertex) {
+        int start = nameOffsets.get(vertex);
+        byte[] bytes = new byte[nameOffsets.get(vertex + 1) - start];
+        nameBytes.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Gets the x coordinate of a vertex.
+    public int getX(int vertex) {
+        return xs.get(vertex);
+    }
+
+    // Gets the y coordinate of a vertex.
+    public int getY(int vertex) {
+        return ys.get(vertex);
+    }
+
+    // Gets the weight of the edge between two vertices, or -1 if they are not connected.
+    public int getWeight(int from, int to) {
+        for (int slot = offsets.get(from); slot < offsets.get(from + 1); slot++) {
+            if (targets.get(slot) == to) {
+                return weights.get(slot);
+            }
+        }
+        return -1;
+    }
+
+    // Gets the number of edges that had been restricted when the graph was saved.
+    public int getRestrictedCount() {
+        return restricted.limit() / 3;
+    }
+
+    // Whether or not the file has nearest exit labels.
+    public boolean hasExitLabels() {
+        return exits != null;
+    }
+
+    // Gets the exits that the labels were computed for.
+    public int[] getExits() {
+        int[] copy = new int[exits.limit()];
+        exits.get(0, copy);
+        return copy;
+    }
+
+    // Gets the distance from vertex to its nearest exit, or Integer.MAX_VALUE if no exit can be reached.
+    public int getExitDistance(int vertex) {
+        return exitDistance.get(vertex);
+    }
+
+    // Gets the next vertex on the route from vertex towards its nearest exit, or -1 if vertex is an exit or cannot reach one.
+    public int getNextHop(int vertex) {
+        return exitNextHop.get(vertex);
+    }
+
+    // Gets the nearest exit of vertex, or -1 if it cannot reach one.
+    public int getExit(int vertex) {
+        return exitOf.get(vertex);
+    }
+
+    // Gets the route from vertex to its nearest exit, vertex first, by following the saved next hops. The route is empty if no exit
+    // can be reached.
+    public int[] getExitRoute(int vertex) {
+        if (exitOf.get(vertex) < 0) {
+            return new int[0];
+        }
+        int length = 1;
+        for (int v = vertex; exitNextHop.get(v) >= 0; v = exitNextHop.get(v)) {
+            length++;
+        }
+        int[] route = new int[length];
+        int index = 0;
+        for (int v = vertex; v >= 0; v = exitNextHop.get(v)) {
+            route[index++] = v;
+        }
+        return route;
+    }
+
+    // Formats the first length vertices of path as "Begin->A->B->...".
+    public String formatPath(int[] path, int length) {
+        StringBuilder pathString = new StringBuilder("Begin");
+        for (int i = 0; i < length; i++) {
+            pathString.append("->").append(getName(path[i]));
+        }
+        return pathString.toString();
+    }
+
+    // Copies the graph onto the heap as a snapshot, for the searches that work on arrays (batches, A*, contraction hierarchies).
+    public GraphSnapshot toSnapshot() {
+        int slotCount = offsets.get(vertexCount);
+        int[] offsetArray = new int[vertexCount + 1];
+        int[] targetArray = new int[slotCount];
+        int[] weightArray = new int[slotCount];
+        int[] xArray = new int[vertexCount];
+        int[] yArray = new int[vertexCount];
+        String[] names = new String[vertexCount];
+        offsets.get(0, offsetArray);
+        targets.get(0, targetArray);
+        weights.get(0, weightArray);
+        xs.get(0, xArray);
+        ys.get(0, yArray);
+        for (int v = 0; v < vertexCount; v++) {
+            names[v] = getName(v);
+        }
+        return new GraphSnapshot(vertexCount, offsetArray, targetArray, weightArray, names, xArray, yArray);
+    }
+
+    // Copies the graph into a new CsrGraph that can be changed again. Restricted edges are added and restricted once more, so the
+    // new graph knows about them too.
+    public CsrGraph toCsrGraph() {
+        int restrictedCount = getRestrictedCount();
+        CsrGraph graph = new CsrGraph(vertexCount, Math.max(getEdgeCount() + restrictedCount, 1));
+        for (int v = 0; v < vertexCount; v++) {
+            graph.addVertex(new Vertex(getName(v), xs.get(v), ys.get(v)));
+        }
+        for (int i = 0; i < restrictedCount; i++) {
+            graph.addEdge(restricted.get(3 * i), restricted.get(3 * i + 1), restricted.get(3 * i + 2));
+        }
+        for (int v = 0; v < vertexCount; v++) {
+            for (int slot = offsets.get(v); slot < offsets.get(v + 1); slot++) {
+                if (v < targets.get(slot)) { // Each undirected edge once.
+                    graph.addEdge(v, targets.get(slot), weights.get(slot));
+                }
+            }
+        }
+        for (int i = 0; i < restrictedCount; i++) {
+            graph.restrict(restricted.get(3 * i), restricted.get(3 * i + 1));
+        }
+        return graph;
+    }
+
+    // Gets the mapped CSR offsets. Row v runs from offsets.get(v) up to (but not including) offsets.get(v + 1).
+    IntBuffer getOffsets() {
+        return offsets;
+    }
+
+    // Gets the mapped CSR targets.
+    IntBuffer getTargets() {
+        return targets;
+    }
+
+    // Gets the mapped CSR weights, aligned with the targets.
+    IntBuffer getWeights() {
+        return weights;
+    }
+
+    // Views a little-endian section as ints, or returns null if the section is not there.
+    private static IntBuffer ints(ByteBuffer section) {
+        return section == null ? null : section.asIntBuffer();
+    }
+
+    // Rounds a file position up to a multiple of 8.
+    private static long align(long position) {
+        return (position + 7) & ~7L;
+    }
+
+    // Writes all of buffer at a file position. Returns the number of bytes written.
+    private static int writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int length = buffer.remaining();
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+        return length;
+    }
+
+    // Fills buffer from a file position.
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of graph file");
+            }
+            position += read;
+        }
+        buffer.flip();
+    }
+}
@@ -0,0 +1,114 @@
+package dijkstra;
+
+import java.util.Arrays;
+
+// Every vertex's distance to, and route towards, its nearest exit. This is computed with a single multi-source search that starts
+// from all of the exits at once, so it costs one O((V + E) log V) pass no matter how many exits or rooms there are.
+class NearestExits {
+    private final int[] exits; // The exit vertices
+    private final int[] distance; // The distance from each vertex to its nearest exit, or Integer.MAX_VALUE if no exit can be reached
+    private final int[] nextHop; // The next vertex on the route towards the nearest exit, or -1 at an exit or if no exit can be reached
+    private final int[] exit; // The nearest exit of each vertex, or -1 if no exit can be reached
+
+    private NearestExits(int[] exits, int[] distance, int[] nextHop, int[] exit) {
+        this.exits = exits;
+        this.distance = distance;
+        this.nextHop = nextHop;
+        this.exit = exit;
+    }
+
+    // Computes the nearest exit of every vertex in the graph.
+    public static NearestExits compute(CsrGraph graph, int... exits) {
+        return compute(graph.context(), graph.snapshot(), exits);
+    }
+
+    // Computes the nearest exit of every vertex in a snapshot, using the current thread's context.
+    public static NearestExits compute(GraphSnapshot graph, int... exits) {
+        return compute(ShortestPathContext.forCurrentThread(), graph, exits);
+    }
+
+    // Computes the nearest exit of every vertex in the engine's snapshot with a parallel search, for graphs with millions of rooms.
+    public static NearestExits compute(DeltaStepping engine, int... exits) {
+        engine.multiSource(exits);
+        return label(exits, engine.getDistances(), engine.getPredecessors());
+    }
+
+    // Computes the nearest exit of every vertex in a snapshot, using the given context for the search.
+    private static NearestExits compute(ShortestPathContext context, GraphSnapshot graph, int[] exits) {
+        context.multiSource(graph, exits);
+
+        int vertexCount = graph.getVertexCount();
+        int[] distance = new int[vertexCount];
+        int[] nextHop = new int[vertexCount];
+        for (int v = 0; v < vertexCount; v++) {
+            distance[v] = context.getDistance(v);
+            nextHop[v] = context.getPredecessor(v);
+        }
+        return label(exits, distance, nextHop);
+    }
+
+    // Labels every vertex with the exit at the root of its branch of a multi-source search tree.
+    private static NearestExits label(int[] exits, int[] distance, int[] nextHop) {
+        int vertexCount = distance.length;
+        int[] exit = new int[vertexCount];
+        Arrays.fill(exit, -1);
+
+        // The nearest exit of a vertex is the root of its branch of the search tree. Walk each branch up until we hit a vertex whose
+        // exit is already known, then label the whole walk on the way back, so every vertex is labelled exactly once.
+        int[] walk = new int[vertexCount];
+        for (int v = 0; v < vertexCount; v++) {
+            if (exit[v] >= 0 || distance[v] == Integer.MAX_VALUE) {
+                continue;
+            }
+            int length = 0;
+            int current = v;
+            while (exit[current] < 0 && nextHop[current] >= 0) {
+                walk[length++] = current;
+                current = nextHop[current];
+            }
+            int root = exit[current] >= 0 ? exit[current] : current;
+            exit[current] = root;
+            for (int i = 0; i < length; i++) {
+                exit[walk[i]] = root;
+            }
+        }
+        return new NearestExits(exits.clone(), distance, nextHop, exit);
+    }
+
+    // Gets the exit vertices.
+    public int[] getExits() {
+        return exits.clone();
+    }
+
+    // Gets the distance from vertex to its nearest exit, or Integer.MAX_VALUE if no exit can be reached.
+    public int getDistance(int vertex) {
+        return distance[vertex];
+    }
+
+    // Gets the next vertex on the route from vertex towards its nearest exit, or -1 if vertex is an exit or cannot reach one.
+    public int getNextHop(int vertex) {
+        return nextHop[vertex];
+    }
+
+    // Gets the nearest exit of vertex, or -1 if it cannot reach one.
+    public int getExit(int vertex) {
+        return exit[vertex];
+    }
+
+    // Gets the route from vertex to its nearest exit, vertex first. The route is empty if no exit can be reached.
+    public int[] getRoute(int vertex) {
+        if (exit[vertex] < 0) {
+            return new int[0];
+        }
+        int length = 1;
+        for (int v = vertex; nextHop[v] >= 0; v = nextHop[v]) {
+            length++;
+        }
+        int[] route = new int[length];
+        int index = 0;
+        for (int v = vertex; v >= 0; v = nextHop[v]) {
+            route[index++] = v;
+        }
+        return route;
+    }
+}
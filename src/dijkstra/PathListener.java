@@ -0,0 +1,12 @@
+package dijkstra;
+
+// Told about every path that CsrGraph.dijkstra and CsrGraph.nearestExit find. Listeners are called on the querying thread after
+// the search is done, so whatever they do is not counted in the query's latency, and a graph with no listeners does no I/O at all.
+// Paths are given end first, as the queries return them, and are empty when nothing was reached.
+interface PathListener {
+    // Called after dijkstra. The distance is Integer.MAX_VALUE if the destination cannot be reached.
+    void shortestPath(CsrGraph graph, int start, int destination, int distance, int[] path);
+
+    // Called after nearestExit. The exit is -1 and the distance is Integer.MAX_VALUE if no exit can be reached.
+    void nearestExit(CsrGraph graph, int start, int exit, int distance, int[] path);
+}
@@ -0,0 +1,329 @@
+package dijkstra;
+
+import java.util.Arrays;
+
+// Point-to-point searches that use the vertex x/y coordinates to avoid exploring the graph in every direction:
+// A*, bidirectional Dijkstra, and bidirectional A*. Like ShortestPathContext, each thread gets its own instance through
+// forCurrentThread(), and the arrays are reused between queries with generation stamps.
+//
+// The heuristic is the straight-line distance between two vertices multiplied by the scale factor, rounded down. It is only a lower
+// bound, which is what keeps the results exact, if the scale is no larger than the smallest ratio of edge weight to pixel distance
+// in the graph. Rounding down keeps it consistent for integer weights.
+class PointToPointSearch {
+    private static final ThreadLocal<PointToPointSearch> CURRENT = ThreadLocal.withInitial(PointToPointSearch::new);
+
+    private final Side forward = new Side(); // The search from the start
+    private final Side backward = new Side(); // The search from the destination, used by the bidirectional modes
+    private int[] potential = new int[0]; // The potential of each vertex, valid only where potentialStamp[v] == generation
+    private int[] potentialStamp = new int[0];
+    private int generation; // The current query's stamp
+
+    private double scale = 1.0; // The number of weight units per pixel of straight-line distance
+    private int potentialMode; // Which potential the current query uses (one of the POTENTIAL_ constants)
+    private int startX, startY, destinationX, destinationY; // The coordinates of the current query's endpoints
+
+    private static final int POTENTIAL_NONE = 0; // Plain Dijkstra, no coordinates used
+    private static final int POTENTIAL_TO_DESTINATION = 1; // A*: the lower bound on the distance to the destination
+    private static final int POTENTIAL_AVERAGE = 2; // Bidirectional A*: half the difference of the bounds to the destination and from the start
+
+    private int[] path = new int[16]; // The last path found, from the start to the destination
+    private int pathLength; // The number of vertices in the last path found
+    private int pathDistance = Integer.MAX_VALUE; // The length of the last path found
+    private int settledCount; // The number of vertices settled by the last query, counting both directions
+    private long relaxedCount; // The number of edges the last query looked along, counting both directions
+    private long heapOperationCount; // The number of heap inserts, decrease-keys and polls in the last query
+
+    // Gets the search that belongs to the current thread.
+    public static PointToPointSearch forCurrentThread() {
+        return CURRENT.get();
+    }
+
+    // Gets the number of weight units per pixel of straight-line distance.
+    public double getScale() {
+        return scale;
+    }
+
+    // Sets the number of weight units per pixel of straight-line distance. Use 0 to turn the heuristic off.
+    public void setScale(double scale) {
+        if (scale < 0) {
+            throw new IllegalArgumentException("Scale must not be negative");
+        }
+        this.scale = scale;
+    }
+
+    // Gets the path found by the last query, from the start to the destination. Only the first getPathLength() entries are used.
+    public int[] getPath() {
+        return path;
+    }
+
+    // Gets the number of vertices in the path found by the last query, or 0 if there was no path.
+    public int getPathLength() {
+        return pathLength;
+    }
+
+    // Gets the length of the path found by the last query, or Integer.MAX_VALUE if there was no path.
+    public int getDistance() {
+        return pathDistance;
+    }
+
+    // Gets the number of vertices settled by the last query, counting both directions. Compare with ShortestPathContext.getSettledCount().
+    public int getSettledCount() {
+        return settledCount;
+    }
+
+    // Gets the number of edges that the last query looked along, counting both directions.
+    public long getRelaxedCount() {
+        return relaxedCount;
+    }
+
+    // Gets the number of heap inserts, decrease-keys and polls in the last query, counting both directions.
+    public long getHeapOperationCount() {
+        return heapOperationCount;
+    }
+
+    // Finds the shortest path with A*, which settles vertices in order of distance so far plus the lower bound on the distance left.
+    // Returns the number of vertices in the path, or 0 if there is no path.
+    public int aStar(GraphSnapshot graph, int start, int destination) {
+        QueryMetrics metrics = QueryMetrics.current();
+        long started = metrics == null ? 0 : System.nanoTime();
+        int length = aStarSearch(graph, start, destination);
+        record(metrics, "aStar", started);
+        return length;
+    }
+
+    // Finds the shortest path from start to destination with A*. Returns the number of vertices in the path, or 0 if there is no path.
+    private int aStarSearch(GraphSnapshot graph, int start, int destination) {
+        begin(graph, start, destination, POTENTIAL_TO_DESTINATION);
+        forward.seed(start, potential(graph, start));
+        while (!forward.heap.isEmpty()) {
+            int currentVertex = forward.settleNext();
+            if (currentVertex == destination) {
+                pathDistance = forward.distance[destination];
+                return buildPath(destination);
+            }
+            forward.relax(graph, currentVertex, 1);
+        }
+        return 0;
+    }
+
+    // Finds the shortest path by searching from both ends at once and stopping when the two searches can no longer improve on the
+    // best path seen where they meet. Returns the number of vertices in the path, or 0 if there is no path.
+    public int bidirectional(GraphSnapshot graph, int start, int destination) {
+        QueryMetrics metrics = QueryMetrics.current();
+        long started = metrics == null ? 0 : System.nanoTime();
+        int length = bidirectionalSearch(graph, start, destination, POTENTIAL_NONE);
+        record(metrics, "bidirectional", started);
+        return length;
+    }
+
+    // Bidirectional search where each side is guided by the coordinates. Returns the number of vertices in the path, or 0 if there is no path.
+    public int bidirectionalAStar(GraphSnapshot graph, int start, int destination) {
+        QueryMetrics metrics = QueryMetrics.current();
+        long started = metrics == null ? 0 : System.nanoTime();
+        int length = bidirectionalSearch(graph, start, destination, POTENTIAL_AVERAGE);
+        record(metrics, "bidirectionalAStar", started);
+        return length;
+    }
+
+    // Records the query that just finished, if metrics are on.
+    private void record(QueryMetrics metrics, String query, long started) {
+        if (metrics != null) {
+            metrics.record(query, null, System.nanoTime() - started, settledCount, relaxedCount, heapOperationCount, pathLength);
+        }
+    }
+
+    // The forward side uses the potential p and the backward side uses -p, which keeps both sides consistent with the same p.
+    // Keys are distance + p forwards and distance - p backwards, so any path through a vertex v is at least the sum of the two
+    // smallest keys. Once that sum reaches the best path found so far, nothing left in either heap can beat it.
+    private int bidirectionalSearch(GraphSnapshot graph, int start, int destination, int mode) {
+        begin(graph, start, destination, mode);
+        forward.seed(start, potential(graph, start));
+        backward.seed(destination, -potential(graph, destination));
+        int best = Integer.MAX_VALUE; // The length of the shortest path found so far
+        int meeting = -1; // The vertex where that path crosses from one side to the other
+        if (start == destination) {
+            best = 0;
+            meeting = start;
+        }
+        while (!forward.heap.isEmpty() && !backward.heap.isEmpty()) {
+            if ((long) forward.heap.peekMinKey() + backward.heap.peekMinKey() >= best) {
+                break;
+            }
+            boolean forwards = forward.heap.size() <= backward.heap.size(); // Grow whichever side has the smaller frontier.
+            Side side = forwards ? forward : backward;
+            Side other = forwards ? backward : forward;
+            int currentVertex = side.settleNext();
+            int[] offsets = graph.getOffsets();
+            int[] targets = graph.getTargets();
+            int[] weights = graph.getWeights();
+            int currentDistance = side.distance[currentVertex];
+            int sign = forwards ? 1 : -1;
+            relaxedCount += offsets[currentVertex + 1] - offsets[currentVertex];
+            for (int slot = offsets[currentVertex]; slot < offsets[currentVertex + 1]; slot++) {
+                int j = targets[slot];
+                int newDistance = currentDistance + weights[slot];
+                if (side.reached[j] != generation || newDistance < side.distance[j]) {
+                    side.reach(j, newDistance, currentVertex);
+                    side.heap.insertOrDecrease(j, newDistance + sign * potential(graph, j));
+                    heapOperationCount++;
+                }
+                if (other.reached[j] == generation && side.distance[j] + (long) other.distance[j] < best) { // The two searches meet at j.
+                    best = side.distance[j] + other.distance[j];
+                    meeting = j;
+                }
+            }
+        }
+        if (meeting < 0) {
+            return 0;
+        }
+        pathDistance = best;
+        return buildPath(meeting);
+    }
+
+    // Starts a new query. Growing the arrays is the only time this allocates.
+    private void begin(GraphSnapshot graph, int start, int destination, int mode) {
+        int vertexCount = graph.getVertexCount();
+        if (potential.length < vertexCount) {
+            potential = new int[vertexCount];
+            potentialStamp = new int[vertexCount];
+            generation = 0;
+        }
+        generation++;
+        if (generation == Integer.MAX_VALUE) { // The stamps are about to wrap around, so wipe them once and start over.
+            Arrays.fill(potentialStamp, 0);
+            forward.wipe();
+            backward.wipe();
+            generation = 1;
+        }
+        forward.begin(vertexCount);
+        backward.begin(vertexCount);
+        potentialMode = scale == 0 ? POTENTIAL_NONE : mode;
+        startX = graph.getX(start);
+        startY = graph.getY(start);
+        destinationX = graph.getX(destination);
+        destinationY = graph.getY(destination);
+        pathLength = 0;
+        pathDistance = Integer.MAX_VALUE;
+        settledCount = 0;
+        relaxedCount = 0;
+        heapOperationCount = 0;
+    }
+
+    // Gets the potential of a vertex, working it out the first time the vertex is seen in this query.
+    private int potential(GraphSnapshot graph, int vertex) {
+        if (potentialMode == POTENTIAL_NONE) {
+            return 0;
+        }
+        if (potentialStamp[vertex] == generation) {
+            return potential[vertex];
+        }
+        int x = graph.getX(vertex);
+        int y = graph.getY(vertex);
+        int toDestination = lowerBound(x, y, destinationX, destinationY);
+        int value = potentialMode == POTENTIAL_TO_DESTINATION ? toDestination : Math.floorDiv(toDestination - lowerBound(startX, startY, x, y), 2);
+        potential[vertex] = value;
+        potentialStamp[vertex] = generation;
+        return value;
+    }
+
+    // The straight-line distance between two points in weight units, rounded down.
+    private int lowerBound(int x1, int y1, int x2, int y2) {
+        double dx = x1 - x2;
+        double dy = y1 - y2;
+        return (int) (scale * Math.sqrt(dx * dx + dy * dy));
+    }
+
+    // Writes the path through the meeting vertex into the path buffer: the forward predecessors back to the start, then the
+    // backward predecessors on to the destination.
+    private int buildPath(int meeting) {
+        boolean hasBackward = backward.reached[meeting] == generation;
+        int forwardLength = 0;
+        for (int v = meeting; v != -1; v = forward.predecessor[v]) {
+            forwardLength++;
+        }
+        int length = forwardLength;
+        if (hasBackward) {
+            for (int v = backward.predecessor[meeting]; v != -1; v = backward.predecessor[v]) {
+                length++;
+            }
+        }
+        if (path.length < length) {
+            path = new int[Math.max(length, path.length * 2)];
+        }
+        int index = forwardLength;
+        for (int v = meeting; v != -1; v = forward.predecessor[v]) {
+            path[--index] = v;
+        }
+        index = forwardLength;
+        if (hasBackward) {
+            for (int v = backward.predecessor[meeting]; v != -1; v = backward.predecessor[v]) {
+                path[index++] = v;
+            }
+        }
+        pathLength = length;
+        return length;
+    }
+
+    // The labels and frontier of one direction of the search.
+    private class Side {
+        int[] distance = new int[0]; // The distance from this side's end, valid only where reached[v] == generation
+        int[] predecessor = new int[0]; // The previous vertex towards this side's end
+        int[] reached = new int[0]; // The generation in which each vertex was first reached
+        IndexedMinHeap heap = new IndexedMinHeap(0, 4); // The frontier, keyed by distance plus or minus the potential
+
+        // Gets the side ready for a new query on a graph with vertexCount vertices.
+        void begin(int vertexCount) {
+            if (distance.length < vertexCount) {
+                distance = new int[vertexCount];
+                predecessor = new int[vertexCount];
+                reached = new int[vertexCount];
+            }
+            heap.clear();
+            heap.ensureCapacity(vertexCount);
+        }
+
+        // Clears the stamps when the generation wraps around.
+        void wipe() {
+            Arrays.fill(reached, 0);
+        }
+
+        // Adds this side's end to the frontier.
+        void seed(int vertex, int key) {
+            reach(vertex, 0, -1);
+            heap.insert(vertex, key);
+            heapOperationCount++;
+        }
+
+        // Records a tentative distance and predecessor for vertex.
+        void reach(int vertex, int newDistance, int from) {
+            distance[vertex] = newDistance;
+            predecessor[vertex] = from;
+            reached[vertex] = generation;
+        }
+
+        // Removes the vertex with the smallest key from the frontier and counts it as settled.
+        int settleNext() {
+            settledCount++;
+            heapOperationCount++;
+            return heap.pollMin();
+        }
+
+        // Relaxes the edges out of vertex, keying the frontier by distance + sign * potential.
+        void relax(GraphSnapshot graph, int vertex, int sign) {
+            int[] offsets = graph.getOffsets();
+            int[] targets = graph.getTargets();
+            int[] weights = graph.getWeights();
+            int currentDistance = distance[vertex];
+            relaxedCount += offsets[vertex + 1] - offsets[vertex];
+            for (int slot = offsets[vertex]; slot < offsets[vertex + 1]; slot++) {
+                int j = targets[slot];
+                int newDistance = currentDistance + weights[slot];
+                if (reached[j] != generation || newDistance < distance[j]) {
+                    reach(j, newDistance, vertex);
+                    heap.insertOrDecrease(j, newDistance + sign * potential(graph, j));
+                    heapOperationCount++;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,369 @@
+package dijkstra;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Opt-in counters and latency histograms for shortest path queries. Metrics are off until enable() is called. While they are off,
+// each query does one read of a static field and nothing else: the searches keep their settled/relaxed/heap counts in fields they
+// have anyway, and only look at the clock when metrics are on.
+//
+// Queries are grouped into modes by what was asked and how, e.g. "shortestPath/HEAP", "nearestTarget/LINEAR_SCAN" or "aStar".
+// For every mode there is a latency histogram and totals of vertices settled, edges relaxed, heap operations and path length.
+// They can be read in-process through snapshot() or report(), or over JMX once registerMBeans() has been called, as
+// dijkstra:type=QueryMetrics,mode=<mode> in any JMX console.
+class QueryMetrics {
+    private static volatile QueryMetrics current; // The metrics that queries record into, or null while metrics are off
+
+    private final ConcurrentHashMap<String, AtomicReferenceArray<Recorder>> recorders = new ConcurrentHashMap<>(); // By query, then queue mode
+    private volatile MBeanServer server; // Where new modes are registered, or null if registerMBeans() has not been called
+
+    // Turns metrics on, and returns the metrics that queries now record into. If they were already on, nothing changes.
+    public static synchronized QueryMetrics enable() {
+        if (current == null) {
+            current = new QueryMetrics();
+        }
+        return current;
+    }
+
+    // Turns metrics off. Anything already recorded can still be read from the metrics that enable() returned.
+    public static synchronized void disable() {
+        current = null;
+    }
+
+    // Gets the metrics that queries record into, or null while metrics are off.
+    public static QueryMetrics current() {
+        return current;
+    }
+
+    // Records one finished query. queueMode is null for searches that do not have one.
+    public void record(String query, QueueMode queueMode, long nanos, int settled, long relaxed, long heapOperations, int pathLength) {
+        recorder(query, queueMode).record(nanos, settled, relaxed, heapOperations, pathLength);
+    }
+
+    // Gets a copy of every mode's numbers as they are now, sorted by mode.
+    public Map<String, Stats> snapshot() {
+        Map<String, Stats> snapshot = new TreeMap<>();
+        for (AtomicReferenceArray<Recorder> byQueue : recorders.values()) {
+            for (int i = 0; i < byQueue.length(); i++) {
+                Recorder recorder = byQueue.get(i);
+                if (recorder != null) {
+                    snapshot.put(recorder.mode, recorder.stats());
+                }
+            }
+        }
+        return snapshot;
+    }
+
+    // Gets a table of every mode's numbers.
+    public String report() {
+        StringBuilder report = new StringBuilder(String.format("%-28s %10s %10s %10s %10s %10s %10s %10s %10s %10s%n",
+                "Mode", "Queries", "Mean us", "p50 us", "p99 us", "p99.9 us", "Max us", "Settled", "Relaxed", "Path"));
+        for (Stats stats : snapshot().values()) {
+            report.append(stats).append(System.lineSeparator());
+        }
+        return report.toString();
+    }
+
+    // Forgets everything recorded so far.
+    public void reset() {
+        for (AtomicReferenceArray<Recorder> byQueue : recorders.values()) {
+            for (int i = 0; i < byQueue.length(); i++) {
+                Recorder recorder = byQueue.get(i);
+                if (recorder != null) {
+                    recorder.reset();
+                }
+            }
+        }
+    }
+
+    // Publishes every mode, including ones first seen later, as an MBean on the platform MBean server.
+    public synchronized void registerMBeans() throws JMException {
+        server = ManagementFactory.getPlatformMBeanServer();
+        for (AtomicReferenceArray<Recorder> byQueue : recorders.values()) {
+            for (int i = 0; i < byQueue.length(); i++) {
+                Recorder recorder = byQueue.get(i);
+                if (recorder != null) {
+                    register(recorder);
+                }
+            }
+        }
+    }
+
+    // Removes the MBeans again.
+    public synchronized void unregisterMBeans() throws JMException {
+        MBeanServer registeredWith = server;
+        server = null;
+        if (registeredWith == null) {
+            return;
+        }
+        for (AtomicReferenceArray<Recorder> byQueue : recorders.values()) {
+            for (int i = 0; i < byQueue.length(); i++) {
+                Recorder recorder = byQueue.get(i);
+                if (recorder != null && registeredWith.isRegistered(recorder.name())) {
+                    registeredWith.unregisterMBean(recorder.name());
+                }
+            }
+        }
+    }
+
+    // Gets the recorder for a mode, creating it the first time the mode is seen.
+    private Recorder recorder(String query, QueueMode queueMode) {
+        AtomicReferenceArray<Recorder> byQueue = recorders.get(query);
+        if (byQueue == null) {
+            byQueue = recorders.computeIfAbsent(query, q -> new AtomicReferenceArray<>(QueueMode.values().length + 1));
+        }
+        int index = queueMode == null ? 0 : queueMode.ordinal() + 1;
+        Recorder recorder = byQueue.get(index);
+        if (recorder == null) {
+            Recorder created = new Recorder(queueMode == null ? query : query + "/" + queueMode);
+            if (byQueue.compareAndSet(index, null, created)) {
+                recorder = created;
+                registerIfPublished(recorder);
+            } else {
+                recorder = byQueue.get(index);
+            }
+        }
+        return recorder;
+    }
+
+    // Registers a new mode's MBean if registerMBeans() has been called.
+    private synchronized void registerIfPublished(Recorder recorder) {
+        if (server != null) {
+            try {
+                register(recorder);
+            } catch (JMException e) {
+                throw new IllegalStateException("Could not register the metrics for " + recorder.mode, e);
+            }
+        }
+    }
+
+    // Registers one mode's MBean, unless it already is.
+    private void register(Recorder recorder) throws JMException {
+        if (!server.isRegistered(recorder.name())) {
+            server.registerMBean(recorder, recorder.name());
+        }
+    }
+
+    // The numbers of one mode at one moment.
+    static final class Stats {
+        private final String mode;
+        private final long count;
+        private final long totalNanos;
+        private final long maxNanos;
+        private final long settled;
+        private final long relaxed;
+        private final long heapOperations;
+        private final long pathLength;
+        private final LatencyHistogram latencies;
+
+        private Stats(String mode, long count, long totalNanos, long maxNanos, long settled, long relaxed, long heapOperations,
+                      long pathLength, LatencyHistogram latencies) {
+            this.mode = mode;
+            this.count = count;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+            this.settled = settled;
+            this.relaxed = relaxed;
+            this.heapOperations = heapOperations;
+            this.pathLength = pathLength;
+            this.latencies = latencies;
+        }
+
+        // Gets the name of the mode.
+        public String getMode() {
+            return mode;
+        }
+
+        // Gets the number of queries.
+        public long getCount() {
+            return count;
+        }
+
+        // Gets the mean latency in nanoseconds.
+        public double getMeanNanos() {
+            return count == 0 ? 0 : (double) totalNanos / count;
+        }
+
+        // Gets the latency that percentile percent of queries finished within, in nanoseconds, to within 1%.
+        public long getPercentileNanos(double percentile) {
+            return latencies.getValueAtPercentile(percentile);
+        }
+
+        // Gets the slowest latency in nanoseconds.
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        // Gets the mean number of vertices settled per query.
+        public double getMeanSettled() {
+            return count == 0 ? 0 : (double) settled / count;
+        }
+
+        // Gets the mean number of edges relaxed per query.
+        public double getMeanRelaxed() {
+            return count == 0 ? 0 : (double) relaxed / count;
+        }
+
+        // Gets the mean number of heap inserts, decrease-keys and polls per query.
+        public double getMeanHeapOperations() {
+            return count == 0 ? 0 : (double) heapOperations / count;
+        }
+
+        // Gets the mean number of vertices per path found, counting queries that found none as 0.
+        public double getMeanPathLength() {
+            return count == 0 ? 0 : (double) pathLength / count;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-28s %10d %10.1f %10.1f %10.1f %10.1f %10.1f %10.1f %10.1f %10.1f", mode, count,
+                    getMeanNanos() / 1e3, getPercentileNanos(50) / 1e3, getPercentileNanos(99) / 1e3, getPercentileNanos(99.9) / 1e3,
+                    maxNanos / 1e3, getMeanSettled(), getMeanRelaxed(), getMeanPathLength());
+        }
+    }
+
+    // Collects the numbers of one mode, and serves them over JMX. Any number of threads can record at once.
+    private static final class Recorder implements DynamicMBean {
+        private static final String[] ATTRIBUTES = {"Count", "MeanMicros", "P50Micros", "P90Micros", "P99Micros", "P999Micros",
+                "MaxMicros", "MeanSettled", "MeanRelaxed", "MeanHeapOperations", "MeanPathLength"};
+
+        private final String mode;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final LongAdder settled = new LongAdder();
+        private final LongAdder relaxed = new LongAdder();
+        private final LongAdder heapOperations = new LongAdder();
+        private final LongAdder pathLength = new LongAdder();
+        private final LatencyHistogram latencies = new LatencyHistogram();
+
+        Recorder(String mode) {
+            this.mode = mode;
+        }
+
+        void record(long nanos, int settledCount, long relaxedCount, long heapOperationCount, int length) {
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+            settled.add(settledCount);
+            relaxed.add(relaxedCount);
+            heapOperations.add(heapOperationCount);
+            pathLength.add(length);
+            latencies.record(nanos);
+        }
+
+        Stats stats() {
+            return new Stats(mode, count.sum(), totalNanos.sum(), maxNanos.get(), settled.sum(), relaxed.sum(), heapOperations.sum(),
+                    pathLength.sum(), latencies.copy());
+        }
+
+        void reset() {
+            count.reset();
+            totalNanos.reset();
+            maxNanos.set(0);
+            settled.reset();
+            relaxed.reset();
+            heapOperations.reset();
+            pathLength.reset();
+            latencies.reset();
+        }
+
+        ObjectName name() throws JMException {
+            return new ObjectName("dijkstra:type=QueryMetrics,mode=" + ObjectName.quote(mode));
+        }
+
+        @Override
+        public Object getAttribute(String attribute) throws AttributeNotFoundException {
+            Stats stats = stats();
+            switch (attribute) {
+                case "Count":
+                    return stats.getCount();
+                case "MeanMicros":
+                    return stats.getMeanNanos() / 1e3;
+                case "P50Micros":
+                    return stats.getPercentileNanos(50) / 1e3;
+                case "P90Micros":
+                    return stats.getPercentileNanos(90) / 1e3;
+                case "P99Micros":
+                    return stats.getPercentileNanos(99) / 1e3;
+                case "P999Micros":
+                    return stats.getPercentileNanos(99.9) / 1e3;
+                case "MaxMicros":
+                    return stats.getMaxNanos() / 1e3;
+                case "MeanSettled":
+                    return stats.getMeanSettled();
+                case "MeanRelaxed":
+                    return stats.getMeanRelaxed();
+                case "MeanHeapOperations":
+                    return stats.getMeanHeapOperations();
+                case "MeanPathLength":
+                    return stats.getMeanPathLength();
+                default:
+                    throw new AttributeNotFoundException(attribute);
+            }
+        }
+
+        @Override
+        public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+            throw new AttributeNotFoundException(attribute.getName() + " is read-only");
+        }
+
+        @Override
+        public AttributeList getAttributes(String[] attributes) {
+            AttributeList list = new AttributeList();
+            for (String attribute : attributes) {
+                try {
+                    list.add(new Attribute(attribute, getAttribute(attribute)));
+                } catch (AttributeNotFoundException e) {
+                    // Attributes that do not exist are left out, as the DynamicMBean contract asks.
+                }
+            }
+            return list;
+        }
+
+        @Override
+        public AttributeList setAttributes(AttributeList attributes) {
+            return new AttributeList(); // Everything is read-only.
+        }
+
+        @Override
+        public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+            if ("reset".equals(actionName)) {
+                reset();
+                return null;
+            }
+            throw new ReflectionException(new NoSuchMethodException(actionName), "No operation named " + actionName);
+        }
+
+        @Override
+        public MBeanInfo getMBeanInfo() {
+            List<MBeanAttributeInfo> attributes = new ArrayList<>();
+            for (String attribute : ATTRIBUTES) {
+                String type = attribute.equals("Count") ? "long" : "double";
+                attributes.add(new MBeanAttributeInfo(attribute, type, attribute, true, false, false));
+            }
+            MBeanOperationInfo reset = new MBeanOperationInfo("reset", "Forget everything recorded so far", null, "void",
+                    MBeanOperationInfo.ACTION);
+            return new MBeanInfo(Recorder.class.getName(), "Shortest path queries in mode " + mode,
+                    attributes.toArray(new MBeanAttributeInfo[0]), null, new MBeanOperationInfo[] {reset}, null);
+        }
+    }
+}
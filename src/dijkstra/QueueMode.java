@@ -0,0 +1,23 @@
+package dijkstra;
+
+// The priority queues that CsrGraph.dijkstra and ShortestPathContext can use to pick the next vertex to visit.
+enum QueueMode {
+    LINEAR_SCAN, // Scan every vertex for the smallest distance, like Graph.minDistance. O(V^2) overall, but hard to beat on dense graphs.
+    HEAP, // An IndexedMinHeap with decrease-key. O((V + E) log V) overall.
+    BUCKET, // Dial's BucketQueue, one bucket per distance. O(V + E + D) overall, where D is the largest distance; for small weights.
+    RADIX, // A RadixHeap. O(E + V log C) overall, where C is the heaviest edge; for weights too spread out for BUCKET.
+    AUTO; // BUCKET if the heaviest edge weighs at most BUCKET_MAX_WEIGHT, otherwise HEAP.
+
+    // The heaviest edge AUTO will use a bucket queue for. Around here the buckets stop beating the 4-ary heap, and by 10^5 they are
+    // several times slower. RADIX beats BUCKET past that point, but it measured slower than HEAP at every weight range, so AUTO
+    // falls back to HEAP.
+    static final int BUCKET_MAX_WEIGHT = 1 << 10;
+
+    // Gets the queue to use on a graph: this one, unless this is AUTO.
+    QueueMode forGraph(GraphSnapshot graph) {
+        if (this != AUTO) {
+            return this;
+        }
+        return graph.getMaxWeight() <= BUCKET_MAX_WEIGHT ? BUCKET : HEAP;
+    }
+}
@@ -0,0 +1,145 @@
+package dijkstra;
+
+import java.util.Arrays;
+
+// A radix heap: a monotone priority queue of vertex ids keyed by non-negative int distances, for Dijkstra's algorithm on graphs
+// whose edge weights are too spread out for a BucketQueue. Keys are kept in 33 buckets by the highest bit in which they differ from
+// the last key polled: bucket 0 holds keys equal to it, and bucket i keys that first differ in bit i - 1. Polling empties the
+// lowest non-empty bucket into lower ones around its smallest key, and since a key can only move down, each one moves at most
+// 32 times. A whole search costs O(E + V log C), where C is the heaviest edge, with no comparisons between keys besides finding
+// each bucket's minimum.
+class RadixHeap {
+    private static final int BUCKETS = 33;
+
+    private final int[][] bucketIds = new int[BUCKETS][]; // The ids in each bucket, in no order
+    private final int[] bucketSizes = new int[BUCKETS];
+    private int[] keys; // The key of each id
+    private int[] bucketOf; // The bucket each id is in, or -1 if it is not in the heap
+    private int[] indexOf; // The index of each id within its bucket
+    private int last; // The last key polled. Every key in the heap is at least this.
+    private int size; // The number of ids in the heap
+
+    public RadixHeap(int capacity) {
+        for (int i = 0; i < BUCKETS; i++) {
+            bucketIds[i] = new int[16];
+        }
+        this.keys = new int[capacity];
+        this.bucketOf = new int[capacity];
+        this.indexOf = new int[capacity];
+        Arrays.fill(bucketOf, -1);
+    }
+
+    // Gets the largest vertex id + 1 that the heap can hold.
+    public int getCapacity() {
+        return bucketOf.length;
+    }
+
+    // Grows the heap so that it can hold vertex ids up to capacity - 1. Existing entries are kept.
+    public void ensureCapacity(int capacity) {
+        if (capacity <= bucketOf.length) {
+            return;
+        }
+        int oldLength = bucketOf.length;
+        keys = Arrays.copyOf(keys, capacity);
+        bucketOf = Arrays.copyOf(bucketOf, capacity);
+        indexOf = Arrays.copyOf(indexOf, capacity);
+        Arrays.fill(bucketOf, oldLength, capacity, -1);
+    }
+
+    // Gets the number of entries in the heap.
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // Whether or not the vertex id is currently in the heap.
+    public boolean contains(int id) {
+        return bucketOf[id] >= 0;
+    }
+
+    // Inserts the vertex id, or lowers its key if it is already in the heap with a larger key. Returns whether or not the heap
+    // changed. The key must be no smaller than the last key polled.
+    public boolean insertOrDecrease(int id, int key) {
+        if (key < last) {
+            throw new IllegalArgumentException("Key " + key + " is smaller than the last key polled, " + last);
+        }
+        if (bucketOf[id] >= 0) {
+            if (key >= keys[id]) {
+                return false;
+            }
+            remove(id);
+        }
+        keys[id] = key;
+        add(id, bucketFor(key));
+        size++;
+        return true;
+    }
+
+    // Removes and returns an id with the smallest key.
+    public int pollMin() {
+        if (bucketSizes[0] == 0) {
+            int bucket = 1;
+            while (bucketSizes[bucket] == 0) {
+                bucket++;
+            }
+            int[] ids = bucketIds[bucket];
+            int count = bucketSizes[bucket];
+            int min = keys[ids[0]];
+            for (int i = 1; i < count; i++) {
+                min = Math.min(min, keys[ids[i]]);
+            }
+            last = min;
+            bucketSizes[bucket] = 0; // Every entry lands in a lower bucket, so this array is not written to while it is read.
+            for (int i = 0; i < count; i++) {
+                add(ids[i], bucketFor(keys[ids[i]]));
+            }
+        }
+        int min = bucketIds[0][--bucketSizes[0]];
+        bucketOf[min] = -1;
+        size--;
+        return min;
+    }
+
+    // Removes every entry and forgets the last key polled. This costs O(size), not O(capacity), so the heap can be reused between
+    // queries.
+    public void clear() {
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            for (int i = 0; i < bucketSizes[bucket]; i++) {
+                bucketOf[bucketIds[bucket][i]] = -1;
+            }
+            bucketSizes[bucket] = 0;
+        }
+        size = 0;
+        last = 0;
+    }
+
+    // Gets the bucket for a key: one more than the highest bit in which it differs from the last key polled, or 0 if it is equal.
+    private int bucketFor(int key) {
+        return 32 - Integer.numberOfLeadingZeros(key ^ last);
+    }
+
+    // Appends an id to a bucket.
+    private void add(int id, int bucket) {
+        int index = bucketSizes[bucket]++;
+        if (index == bucketIds[bucket].length) {
+            bucketIds[bucket] = Arrays.copyOf(bucketIds[bucket], index * 2);
+        }
+        bucketIds[bucket][index] = id;
+        bucketOf[id] = bucket;
+        indexOf[id] = index;
+    }
+
+    // Takes an id out of the heap by moving its bucket's last id into its place.
+    private void remove(int id) {
+        int bucket = bucketOf[id];
+        int index = indexOf[id];
+        int moved = bucketIds[bucket][--bucketSizes[bucket]];
+        bucketIds[bucket][index] = moved;
+        indexOf[moved] = index;
+        bucketOf[id] = -1;
+        size--;
+    }
+}
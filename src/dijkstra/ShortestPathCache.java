@@ -0,0 +1,251 @@
+package dijkstra;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// A cache of shortest path results for one CsrGraph, for traffic that asks the same questions over and over.
+// Results are keyed by (kind of query, source, targets) and evicted least recently used first once their estimated size goes over
+// the memory bound. The cache remembers the graph version its entries were computed at; as soon as the graph's version moves on,
+// every entry is dropped, so a stale result is never returned.
+//
+// The cache is safe to share between threads. The lock is only held to look a result up and to store it; a miss runs its search
+// outside the lock, on the snapshot the lookup saw, so one slow search never holds up callers whose results are already cached.
+// Two threads that miss on the same key at once both search, and the first result stored is the one that is kept.
+//
+// NOTE: the arrays returned by the cache (Result.getPath and distancesFrom) are the cached arrays themselves, not copies, so that a
+// hit never copies a large result. They are shared with every other caller and must never be modified.
+class ShortestPathCache {
+    private static final int ENTRY_OVERHEAD_BYTES = 96; // A rough size for the key, map entry and result objects around the arrays
+
+    private final CsrGraph graph;
+    private final long maxBytes; // The memory bound
+    private final LinkedHashMap<Key, Result> entries = new LinkedHashMap<>(16, 0.75f, true); // In access order, so the eldest is the least recently used
+    private long version; // The graph version the entries were computed at
+    private long bytes; // The estimated size of all entries
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+
+    public ShortestPathCache(CsrGraph graph, long maxBytes) {
+        this.graph = graph;
+        this.maxBytes = maxBytes;
+        this.version = graph.getVersion();
+    }
+
+    // The kinds of query the cache can hold.
+    enum Kind {
+        SHORTEST_PATH, // The path from a source to one target
+        NEAREST_TARGET, // The path from a source to the closest of several targets
+        SINGLE_SOURCE // The distance from a source to every vertex
+    }
+
+    // Gets the shortest path from start to destination. The path must not be modified.
+    public Result shortestPath(int start, int destination) {
+        Key key = new Key(Kind.SHORTEST_PATH, start, new int[] {destination});
+        Lookup found = lookup(key);
+        if (found.result != null) {
+            return found.result;
+        }
+        ShortestPathContext context = graph.context();
+        int length = context.shortestPath(found.snapshot, start, destination);
+        return store(key, Result.path(context, length, destination), found.version);
+    }
+
+    // Gets the shortest path from start to whichever of the targets is closest. The path must not be modified.
+    public Result nearestTarget(int start, int... targets) {
+        int[] sorted = targets.clone();
+        Arrays.sort(sorted); // The same set of targets in any order is the same query.
+        Key key = new Key(Kind.NEAREST_TARGET, start, sorted);
+        Lookup found = lookup(key);
+        if (found.result != null) {
+            return found.result;
+        }
+        ShortestPathContext context = graph.context();
+        int length = context.nearestTarget(found.snapshot, start, sorted);
+        return store(key, Result.path(context, length, context.getReachedTarget()), found.version);
+    }
+
+    // Gets the distance from source to every vertex. Unreachable vertices get Integer.MAX_VALUE. The array must not be modified.
+    public int[] distancesFrom(int source) {
+        Key key = new Key(Kind.SINGLE_SOURCE, source, new int[0]);
+        Lookup found = lookup(key);
+        if (found.result != null) {
+            return found.result.path;
+        }
+        ShortestPathContext context = graph.context();
+        context.singleSource(found.snapshot, source);
+        int[] distances = new int[found.snapshot.getVertexCount()];
+        for (int v = 0; v < distances.length; v++) {
+            distances[v] = context.getDistance(v);
+        }
+        return store(key, new Result(distances, 0, -1), found.version).path;
+    }
+
+    // Gets the number of lookups that found a result.
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    // Gets the number of lookups that had to run a query.
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    // Gets the number of entries dropped to stay under the memory bound.
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    // Gets the number of times the whole cache was dropped because the graph changed.
+    public synchronized long getInvalidations() {
+        return invalidations;
+    }
+
+    // Gets the number of entries in the cache.
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    // Gets the estimated size of the entries in the cache, in bytes.
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    // Drops every entry.
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    // Looks a key up, first dropping everything if the graph has changed since the entries were computed. On a miss, also takes the
+    // snapshot to search while the lock is held, since compiling the graph is not safe from two threads at once.
+    private synchronized Lookup lookup(Key key) {
+        if (graph.getVersion() != version) {
+            if (!entries.isEmpty()) {
+                invalidations++;
+            }
+            clear();
+            version = graph.getVersion();
+        }
+        Result result = entries.get(key);
+        if (result == null) {
+            misses++;
+            return new Lookup(null, graph.snapshot(), version);
+        }
+        hits++;
+        return new Lookup(result, null, version);
+    }
+
+    // Adds a result that was computed at a graph version, then evicts the least recently used entries until the cache fits its bound
+    // again. A result from an older version is returned without being stored, and if another thread stored the same key first, its
+    // result is kept and returned instead.
+    private synchronized Result store(Key key, Result result, long computedAt) {
+        if (computedAt != version || graph.getVersion() != version) {
+            return result;
+        }
+        Result existing = entries.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        long size = sizeOf(key, result);
+        if (size > maxBytes) { // It would evict everything else and still not fit.
+            return result;
+        }
+        entries.put(key, result);
+        bytes += size;
+        Iterator<Map.Entry<Key, Result>> eldest = entries.entrySet().iterator();
+        while (bytes > maxBytes) {
+            Map.Entry<Key, Result> entry = eldest.next();
+            bytes -= sizeOf(entry.getKey(), entry.getValue());
+            eldest.remove();
+            evictions++;
+        }
+        return result;
+    }
+
+    // Estimates how much memory an entry uses.
+    private static long sizeOf(Key key, Result result) {
+        return ENTRY_OVERHEAD_BYTES + 4L * key.targets.length + 4L * result.path.length;
+    }
+
+    // A cached answer. For path queries it is the path (start first), its length and the target reached; for single-source queries
+    // the array holds the distances instead.
+    static final class Result {
+        private final int[] path;
+        private final int distance;
+        private final int target;
+
+        private Result(int[] path, int distance, int target) {
+            this.path = path;
+            this.distance = distance;
+            this.target = target;
+        }
+
+        // Copies the path that the context just found.
+        private static Result path(ShortestPathContext context, int length, int target) {
+            int[] path = Arrays.copyOf(context.getPath(), length);
+            return new Result(path, length == 0 ? Integer.MAX_VALUE : context.getDistance(target), length == 0 ? -1 : target);
+        }
+
+        // Gets the path, start first. It is empty if there is no path. The array is shared with the cache and must not be modified.
+        public int[] getPath() {
+            return path;
+        }
+
+        // Gets the length of the path, or Integer.MAX_VALUE if there is no path.
+        public int getDistance() {
+            return distance;
+        }
+
+        // Gets the target the path ends at, or -1 if there is no path.
+        public int getTarget() {
+            return target;
+        }
+    }
+
+    // What a lookup found: the cached result, or, on a miss, the snapshot to search and the version it belongs to.
+    private static final class Lookup {
+        private final Result result;
+        private final GraphSnapshot snapshot;
+        private final long version;
+
+        Lookup(Result result, GraphSnapshot snapshot, long version) {
+            this.result = result;
+            this.snapshot = snapshot;
+            this.version = version;
+        }
+    }
+
+    // The key of a cached query.
+    private static final class Key {
+        private final Kind kind;
+        private final int source;
+        private final int[] targets;
+        private final int hash;
+
+        Key(Kind kind, int source, int[] targets) {
+            this.kind = kind;
+            this.source = source;
+            this.targets = targets;
+            this.hash = 31 * (31 * kind.hashCode() + source) + Arrays.hashCode(targets);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return kind == key.kind && source == key.source && Arrays.equals(targets, key.targets);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,393 @@
+package dijkstra;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+// Reusable scratch space for shortest path queries on a GraphSnapshot. Each thread gets its own context through forCurrentThread().
+// The distance and predecessor arrays are kept between queries and are reset lazily: a vertex's entries only count if its stamp
+// matches the current generation, so starting a new query is O(1) instead of refilling O(V) arrays. Once the arrays have grown
+// to the size of the graph, a query allocates nothing.
+class ShortestPathContext {
+    private static final ThreadLocal<ShortestPathContext> CURRENT = ThreadLocal.withInitial(ShortestPathContext::new);
+
+    private int[] distance = new int[0]; // The distance from the start, valid only where reached[v] == generation
+    private int[] predecessor = new int[0]; // The previous vertex on the shortest path, valid only where reached[v] == generation
+    private int[] reached = new int[0]; // The generation in which each vertex was first reached
+    private int[] settled = new int[0]; // The generation in which each vertex was settled
+    private int[] target = new int[0]; // The generation in which each vertex was marked as a target of the query
+    private int generation; // The current query's stamp
+
+    private QueueMode queueMode = QueueMode.AUTO; // How the next vertex is picked
+    private QueueMode activeQueue = QueueMode.HEAP; // The queue the current query is using, with AUTO worked out
+    private IndexedMinHeap heap = new IndexedMinHeap(0, 4); // The frontier for HEAP queries, reused between queries
+    private BucketQueue buckets = new BucketQueue(0); // The frontier for BUCKET queries
+    private RadixHeap radixHeap = new RadixHeap(0); // The frontier for RADIX queries
+
+    private int[] path = new int[16]; // The last path found, from the start to the destination
+    private int pathLength; // The number of vertices in the last path found
+    private int settledCount; // The number of vertices settled by the last query
+    private long relaxedCount; // The number of edges the last query looked along
+    private long heapOperationCount; // The number of queue inserts, decrease-keys and polls in the last query
+    private int reachedTarget = -1; // The target that the last query stopped at, or -1 if none was reached
+
+    // Gets the context that belongs to the current thread.
+    public static ShortestPathContext forCurrentThread() {
+        return CURRENT.get();
+    }
+
+    // Gets the priority queue that queries use.
+    public QueueMode getQueueMode() {
+        return queueMode;
+    }
+
+    // Sets the priority queue that queries use.
+    public void setQueueMode(QueueMode queueMode) {
+        this.queueMode = queueMode;
+    }
+
+    // Gets the number of children per heap node.
+    public int getHeapArity() {
+        return heap.getArity();
+    }
+
+    // Sets the number of children per heap node. Only a change of arity allocates a new heap.
+    public void setHeapArity(int heapArity) {
+        if (heap.getArity() != heapArity) {
+            heap = new IndexedMinHeap(heap.getCapacity(), heapArity);
+        }
+    }
+
+    // Gets the distance from the start of the last query, or Integer.MAX_VALUE if the vertex was not reached.
+    public int getDistance(int vertex) {
+        return reached[vertex] == generation ? distance[vertex] : Integer.MAX_VALUE;
+    }
+
+    // Gets the previous vertex on the shortest path to vertex, or -1 if the vertex is the start or was not reached.
+    public int getPredecessor(int vertex) {
+        return reached[vertex] == generation ? predecessor[vertex] : -1;
+    }
+
+    // Gets the path found by the last query, from the start to the destination. Only the first getPathLength() entries are used,
+    // and the array is overwritten by the next query.
+    public int[] getPath() {
+        return path;
+    }
+
+    // Gets the number of vertices in the path found by the last query, or 0 if there was no path.
+    public int getPathLength() {
+        return pathLength;
+    }
+
+    // Gets the target that the last query stopped at, or -1 if none of the targets could be reached.
+    public int getReachedTarget() {
+        return reachedTarget;
+    }
+
+    // Gets the number of vertices that the last query settled.
+    public int getSettledCount() {
+        return settledCount;
+    }
+
+    // Gets the number of edges that the last query looked along from the vertices it settled.
+    public long getRelaxedCount() {
+        return relaxedCount;
+    }
+
+    // Gets the number of queue inserts, decrease-keys and polls in the last query. A LINEAR_SCAN query only counts its seeds.
+    public long getHeapOperationCount() {
+        return heapOperationCount;
+    }
+
+    // Finds the shortest path from start to destination using the context's queue mode, recording predecessors as edges are relaxed.
+    // Returns the number of vertices in the path (see getPath()), or 0 if the destination cannot be reached.
+    public int shortestPath(GraphSnapshot graph, int start, int destination) {
+        QueryMetrics metrics = QueryMetrics.current();
+        long started = metrics == null ? 0 : System.nanoTime();
+        begin(graph);
+        target[destination] = generation;
+        seed(start);
+        search(graph);
+        return finish(metrics, "shortestPath", started);
+    }
+
+    // Finds the shortest path from start to whichever of the targets is closest, stopping as soon as the first target is settled.
+    // Returns the number of vertices in the path (see getPath() and getReachedTarget()), or 0 if no target can be reached.
+    public int nearestTarget(GraphSnapshot graph, int start, int[] targets) {
+        QueryMetrics metrics = QueryMetrics.current();
+        long started = metrics == null ? 0 : System.nanoTime();
+        begin(graph);
+        for (int t : targets) {
+            target[t] = generation;
+        }
+        seed(start);
+        search(graph);
+        return finish(metrics, "nearestTarget", started);
+    }
+
+    // Settles every vertex that can be reached from source. Afterwards getDistance(v) is the distance from source to v.
+    public void singleSource(GraphSnapshot graph, int source) {
+        QueryMetrics metrics = QueryMetrics.current();
+        long started = metrics == null ? 0 : System.nanoTime();
+        begin(graph);
+        seed(source);
+        search(graph);
+        finish(metrics, "singleSource", started);
+    }
+
+    // Runs one search seeded with every source at distance 0 and no targets, so every reachable vertex ends up settled.
+    // Afterwards getDistance(v) is the distance from v to its nearest source, and because edges are undirected, getPredecessor(v)
+    // is the next vertex on v's route towards that source.
+    public void multiSource(GraphSnapshot graph, int[] sources) {
+        QueryMetrics metrics = QueryMetrics.current();
+        long started = metrics == null ? 0 : System.nanoTime();
+        begin(graph);
+        for (int s : sources) {
+            seed(s);
+        }
+        search(graph);
+        finish(metrics, "multiSource", started);
+    }
+
+    // Finds the shortest path from start to destination in a memory-mapped graph, reading the edges straight from the mapped file.
+    // Returns the number of vertices in the path (see getPath()), or 0 if the destination cannot be reached.
+    public int shortestPath(MappedGraph graph, int start, int destination) {
+        QueryMetrics metrics = QueryMetrics.current();
+        long started = metrics == null ? 0 : System.nanoTime();
+        begin(graph.getVertexCount(), QueueMode.HEAP, 0);
+        target[destination] = generation;
+        seed(start);
+        mappedSearch(graph);
+        return finish(metrics, "mappedShortestPath", started);
+    }
+
+    // Finds the shortest path from start to the closest of the targets in a memory-mapped graph.
+    // Returns the number of vertices in the path (see getPath() and getReachedTarget()), or 0 if no target can be reached.
+    public int nearestTarget(MappedGraph graph, int start, int[] targets) {
+        QueryMetrics metrics = QueryMetrics.current();
+        long started = metrics == null ? 0 : System.nanoTime();
+        begin(graph.getVertexCount(), QueueMode.HEAP, 0);
+        for (int t : targets) {
+            target[t] = generation;
+        }
+        seed(start);
+        mappedSearch(graph);
+        return finish(metrics, "mappedNearestTarget", started);
+    }
+
+    // Settles vertices in order of distance from the frontier that begin picked, until a target is settled. LINEAR_SCAN has no
+    // frontier and is done by scanSearch instead.
+    private void search(GraphSnapshot graph) {
+        if (activeQueue == QueueMode.LINEAR_SCAN) {
+            scanSearch(graph);
+            return;
+        }
+        int[] offsets = graph.getOffsets();
+        int[] targets = graph.getTargets();
+        int[] weights = graph.getWeights();
+        for (int currentVertex = settleNext(); currentVertex >= 0; currentVertex = settleNext()) {
+            int currentDistance = distance[currentVertex];
+            for (int slot = offsets[currentVertex]; slot < offsets[currentVertex + 1]; slot++) {
+                relax(currentVertex, targets[slot], currentDistance + weights[slot]);
+            }
+            relaxedCount += offsets[currentVertex + 1] - offsets[currentVertex];
+        }
+    }
+
+    // The same as search, but reading the edges from the buffers of a memory-mapped graph instead of arrays. It always uses the
+    // heap, because a linear scan over a graph big enough to be worth mapping would never finish.
+    private void mappedSearch(MappedGraph graph) {
+        IntBuffer offsets = graph.getOffsets();
+        IntBuffer targets = graph.getTargets();
+        IntBuffer weights = graph.getWeights();
+        for (int currentVertex = settleNext(); currentVertex >= 0; currentVertex = settleNext()) {
+            int currentDistance = distance[currentVertex];
+            int begin = offsets.get(currentVertex);
+            int end = offsets.get(currentVertex + 1);
+            for (int slot = begin; slot < end; slot++) {
+                relax(currentVertex, targets.get(slot), currentDistance + weights.get(slot));
+            }
+            relaxedCount += end - begin;
+        }
+    }
+
+    // Builds the path to the target the search stopped at, if any, and records the query if metrics are on.
+    // Returns the number of vertices in the path.
+    private int finish(QueryMetrics metrics, String query, long started) {
+        int length = reachedTarget < 0 ? 0 : buildPath(reachedTarget);
+        if (metrics != null) {
+            metrics.record(query, activeQueue, System.nanoTime() - started, settledCount, relaxedCount, heapOperationCount, length);
+        }
+        return length;
+    }
+
+    // Starts a new query on a snapshot, with the queue the context's queue mode picks for it.
+    private void begin(GraphSnapshot graph) {
+        QueueMode queue = queueMode.forGraph(graph);
+        begin(graph.getVertexCount(), queue, queue == QueueMode.BUCKET ? graph.getMaxWeight() : 0);
+    }
+
+    // Starts a new query on a graph of vertexCount vertices using the given queue. A BUCKET queue needs the heaviest edge weight.
+    // Growing the arrays is the only time this allocates.
+    private void begin(int vertexCount, QueueMode queue, int maxWeight) {
+        if (distance.length < vertexCount) {
+            distance = new int[vertexCount];
+            predecessor = new int[vertexCount];
+            reached = new int[vertexCount];
+            settled = new int[vertexCount];
+            target = new int[vertexCount];
+            generation = 0;
+        }
+        generation++;
+        if (generation == Integer.MAX_VALUE) { // The stamps are about to wrap around, so wipe them once and start over.
+            Arrays.fill(reached, 0);
+            Arrays.fill(settled, 0);
+            Arrays.fill(target, 0);
+            generation = 1;
+        }
+        activeQueue = queue;
+        if (queue == QueueMode.BUCKET) {
+            buckets.clear();
+            buckets.ensureCapacity(vertexCount);
+            buckets.setMaxSpread(maxWeight);
+        } else if (queue == QueueMode.RADIX) {
+            radixHeap.clear();
+            radixHeap.ensureCapacity(vertexCount);
+        } else {
+            heap.clear();
+            heap.ensureCapacity(vertexCount);
+        }
+        pathLength = 0;
+        settledCount = 0;
+        relaxedCount = 0;
+        heapOperationCount = 0;
+        reachedTarget = -1;
+    }
+
+    // Adds a starting vertex to the query at distance 0.
+    private void seed(int vertex) {
+        reach(vertex, 0, -1);
+        if (activeQueue != QueueMode.LINEAR_SCAN) {
+            offerFrontier(vertex, 0);
+        }
+        heapOperationCount++;
+    }
+
+    // Records a tentative distance and predecessor for vertex.
+    private void reach(int vertex, int newDistance, int from) {
+        distance[vertex] = newDistance;
+        predecessor[vertex] = from;
+        reached[vertex] = generation;
+    }
+
+    // Takes the closest vertex off the frontier and settles it. Returns it, or -1 if the frontier is empty or the vertex was a
+    // target, which ends the search.
+    private int settleNext() {
+        if (frontierIsEmpty()) {
+            return -1;
+        }
+        int vertex = pollFrontier();
+        heapOperationCount++;
+        settled[vertex] = generation;
+        settledCount++;
+        if (target[vertex] == generation) {
+            reachedTarget = vertex;
+            return -1;
+        }
+        return vertex;
+    }
+
+    // Puts vertex on the frontier at newDistance, with from as its predecessor, unless it already has a distance at least as short.
+    private void relax(int from, int vertex, int newDistance) {
+        if (reached[vertex] != generation || newDistance < distance[vertex]) {
+            reach(vertex, newDistance, from);
+            offerFrontier(vertex, newDistance);
+            heapOperationCount++;
+        }
+    }
+
+    // Whether or not the frontier is empty. This and the two methods below are all that differ between frontiers: the heap is
+    // O((V + E) log V) overall, Dial's buckets O(V + E + D) where D is the largest distance settled, and the radix heap
+    // O(E + V log C) where C is the heaviest edge.
+    private boolean frontierIsEmpty() {
+        if (activeQueue == QueueMode.BUCKET) {
+            return buckets.isEmpty();
+        } else if (activeQueue == QueueMode.RADIX) {
+            return radixHeap.isEmpty();
+        }
+        return heap.isEmpty();
+    }
+
+    // Removes and returns the vertex on the frontier with the smallest distance.
+    private int pollFrontier() {
+        if (activeQueue == QueueMode.BUCKET) {
+            return buckets.pollMin();
+        } else if (activeQueue == QueueMode.RADIX) {
+            return radixHeap.pollMin();
+        }
+        return heap.pollMin();
+    }
+
+    // Adds a vertex to the frontier, or lowers its distance if it is already there.
+    private void offerFrontier(int vertex, int newDistance) {
+        if (activeQueue == QueueMode.BUCKET) {
+            buckets.insertOrDecrease(vertex, newDistance);
+        } else if (activeQueue == QueueMode.RADIX) {
+            radixHeap.insertOrDecrease(vertex, newDistance);
+        } else {
+            heap.insertOrDecrease(vertex, newDistance);
+        }
+    }
+
+    // Picks the next vertex by scanning every vertex for the smallest distance, like Graph.minDistance. This is O(V^2).
+    private void scanSearch(GraphSnapshot graph) {
+        int[] offsets = graph.getOffsets();
+        int[] targets = graph.getTargets();
+        int[] weights = graph.getWeights();
+        int vertexCount = graph.getVertexCount();
+        while (true) {
+            int currentVertex = -1;
+            int min = Integer.MAX_VALUE;
+            for (int i = 0; i < vertexCount; i++) {
+                if (reached[i] == generation && settled[i] != generation && distance[i] < min) {
+                    min = distance[i];
+                    currentVertex = i;
+                }
+            }
+            if (currentVertex < 0) { // Everything that is left is unreachable.
+                return;
+            }
+            settled[currentVertex] = generation;
+            settledCount++;
+            if (target[currentVertex] == generation) {
+                reachedTarget = currentVertex;
+                return;
+            }
+            relaxedCount += offsets[currentVertex + 1] - offsets[currentVertex];
+            for (int slot = offsets[currentVertex]; slot < offsets[currentVertex + 1]; slot++) {
+                int j = targets[slot];
+                int newDistance = min + weights[slot];
+                if (settled[j] != generation && (reached[j] != generation || newDistance < distance[j])) {
+                    reach(j, newDistance, currentVertex);
+                }
+            }
+        }
+    }
+
+    // Follows the predecessors back from destination and writes the path into the path buffer, start first.
+    // Only called once destination has been settled.
+    private int buildPath(int destination) {
+        int length = 0;
+        for (int v = destination; v != -1; v = predecessor[v]) {
+            length++;
+        }
+        if (path.length < length) {
+            path = new int[Math.max(length, path.length * 2)];
+        }
+        int index = length;
+        for (int v = destination; v != -1; v = predecessor[v]) {
+            path[--index] = v;
+        }
+        pathLength = length;
+        return length;
+    }
+}
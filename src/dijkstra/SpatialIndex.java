@@ -0,0 +1,303 @@
+package dijkstra;
+
+import java.util.function.IntConsumer;
+
+// A uniform grid over the vertex coordinates of a graph, for finding the vertices and edges in a rectangle without looking at the
+// whole graph. Vertices are bucketed by the cell they sit in. Each undirected edge is stored once, in the cell of the top-left
+// corner of its bounding box, so a query also looks SPAN cells up and to the left of its rectangle. Edges whose bounding box is
+// wider than that go in a separate list that every query checks, so a few long edges do not make every query look further.
+// Both buckets are counting sorted into flat arrays, like CsrGraph.compile. Cells hold about two vertices each, so a query costs
+// about as much as the number of things it finds, and nearestVertex only looks at the cells around its point.
+class SpatialIndex {
+    private static final int VERTICES_PER_CELL = 2; // How many vertices the cells are sized to hold, on average
+    private static final int SPAN = 2; // The widest an edge's bounding box can be, in cells, for the edge to be kept in the grid
+
+    private final GraphSnapshot graph;
+    private final int minX; // The world coordinates of the top-left corner of the grid
+    private final int minY;
+    private final int maxX; // The world coordinates of the bottom-right-most vertex
+    private final int maxY;
+    private final long cellSize; // The width and height of a cell in world units
+    private final int columns;
+    private final int rows;
+
+    // The vertices in cell c are cellVertices[vertexStart[c]] to cellVertices[vertexStart[c + 1] - 1], and likewise for edges.
+    private final int[] vertexStart;
+    private final int[] cellVertices;
+    private final int[] edgeStart;
+    private final int[] cellEdges;
+    private final int[] longEdges; // The edges that are too wide for the grid
+
+    // Every undirected edge once, from its lower-numbered end. Edges are numbered by their index in these arrays.
+    private final int[] edgeFrom;
+    private final int[] edgeTo;
+    private final int[] edgeWeight;
+
+    public SpatialIndex(GraphSnapshot graph) {
+        this.graph = graph;
+        int vertexCount = graph.getVertexCount();
+        int lowX = Integer.MAX_VALUE;
+        int lowY = Integer.MAX_VALUE;
+        int highX = Integer.MIN_VALUE;
+        int highY = Integer.MIN_VALUE;
+        for (int v = 0; v < vertexCount; v++) {
+            lowX = Math.min(lowX, graph.getX(v));
+            lowY = Math.min(lowY, graph.getY(v));
+            highX = Math.max(highX, graph.getX(v));
+            highY = Math.max(highY, graph.getY(v));
+        }
+        if (vertexCount == 0) {
+            lowX = lowY = highX = highY = 0;
+        }
+        this.minX = lowX;
+        this.minY = lowY;
+        this.maxX = highX;
+        this.maxY = highY;
+
+        // Size the cells to hold VERTICES_PER_CELL vertices if the vertices were spread evenly, then make them bigger if that
+        // would be far more cells than vertices, which happens when the vertices lie along a line.
+        long width = (long) highX - lowX + 1;
+        long height = (long) highY - lowY + 1;
+        long size = Math.max(1, (long) Math.ceil(Math.sqrt((double) width * height * VERTICES_PER_CELL / Math.max(vertexCount, 1))));
+        while ((width / size + 1) * (height / size + 1) > 4L * vertexCount + 16) {
+            size *= 2;
+        }
+        this.cellSize = size;
+        this.columns = (int) (width / size + 1);
+        this.rows = (int) (height / size + 1);
+        int cellCount = columns * rows;
+
+        // Counting sort of the vertices by cell.
+        int[] cellOf = new int[vertexCount];
+        this.vertexStart = new int[cellCount + 1];
+        for (int v = 0; v < vertexCount; v++) {
+            cellOf[v] = row(graph.getY(v)) * columns + column(graph.getX(v));
+            vertexStart[cellOf[v] + 1]++;
+        }
+        for (int c = 0; c < cellCount; c++) {
+            vertexStart[c + 1] += vertexStart[c];
+        }
+        this.cellVertices = new int[vertexCount];
+        int[] next = new int[cellCount];
+        System.arraycopy(vertexStart, 0, next, 0, cellCount);
+        for (int v = 0; v < vertexCount; v++) {
+            cellVertices[next[cellOf[v]]++] = v;
+        }
+
+        // Each undirected edge appears in the CSR row of both its endpoints; keep the copy in the row of the lower-numbered one.
+        int[] offsets = graph.getOffsets();
+        int[] targets = graph.getTargets();
+        int[] weights = graph.getWeights();
+        int edgeCount = 0;
+        for (int v = 0; v < vertexCount; v++) {
+            for (int slot = offsets[v]; slot < offsets[v + 1]; slot++) {
+                if (targets[slot] > v) {
+                    edgeCount++;
+                }
+            }
+        }
+        this.edgeFrom = new int[edgeCount];
+        this.edgeTo = new int[edgeCount];
+        this.edgeWeight = new int[edgeCount];
+        int e = 0;
+        for (int v = 0; v < vertexCount; v++) {
+            for (int slot = offsets[v]; slot < offsets[v + 1]; slot++) {
+                if (targets[slot] > v) {
+                    edgeFrom[e] = v;
+                    edgeTo[e] = targets[slot];
+                    edgeWeight[e] = weights[slot];
+                    e++;
+                }
+            }
+        }
+
+        // Counting sort of the edges by the cell of their bounding box's top-left corner, with the wide ones set aside.
+        int[] homeOf = new int[edgeCount];
+        this.edgeStart = new int[cellCount + 1];
+        int longCount = 0;
+        for (e = 0; e < edgeCount; e++) {
+            int ax = graph.getX(edgeFrom[e]);
+            int ay = graph.getY(edgeFrom[e]);
+            int bx = graph.getX(edgeTo[e]);
+            int by = graph.getY(edgeTo[e]);
+            int left = column(Math.min(ax, bx));
+            int top = row(Math.min(ay, by));
+            if (column(Math.max(ax, bx)) - left > SPAN || row(Math.max(ay, by)) - top > SPAN) {
+                homeOf[e] = -1;
+                longCount++;
+            } else {
+                homeOf[e] = top * columns + left;
+                edgeStart[homeOf[e] + 1]++;
+            }
+        }
+        for (int c = 0; c < cellCount; c++) {
+            edgeStart[c + 1] += edgeStart[c];
+        }
+        this.cellEdges = new int[edgeCount - longCount];
+        this.longEdges = new int[longCount];
+        System.arraycopy(edgeStart, 0, next, 0, cellCount);
+        longCount = 0;
+        for (e = 0; e < edgeCount; e++) {
+            if (homeOf[e] < 0) {
+                longEdges[longCount++] = e;
+            } else {
+                cellEdges[next[homeOf[e]]++] = e;
+            }
+        }
+    }
+
+    // Gets the graph that this index covers.
+    public GraphSnapshot getGraph() {
+        return graph;
+    }
+
+    // Gets the smallest x coordinate of any vertex.
+    public int getMinX() {
+        return minX;
+    }
+
+    // Gets the smallest y coordinate of any vertex.
+    public int getMinY() {
+        return minY;
+    }
+
+    // Gets the largest x coordinate of any vertex.
+    public int getMaxX() {
+        return maxX;
+    }
+
+    // Gets the largest y coordinate of any vertex.
+    public int getMaxY() {
+        return maxY;
+    }
+
+    // Gets the number of undirected edges, each counted once.
+    public int getEdgeCount() {
+        return edgeFrom.length;
+    }
+
+    // Gets the lower-numbered end of an edge.
+    public int getEdgeFrom(int edge) {
+        return edgeFrom[edge];
+    }
+
+    // Gets the higher-numbered end of an edge.
+    public int getEdgeTo(int edge) {
+        return edgeTo[edge];
+    }
+
+    // Gets the weight of an edge.
+    public int getEdgeWeight(int edge) {
+        return edgeWeight[edge];
+    }
+
+    // Calls action with every vertex whose coordinates are inside the rectangle, edges included.
+    public void forEachVertexIn(int left, int top, int right, int bottom, IntConsumer action) {
+        if (right < left || bottom < top) {
+            return;
+        }
+        for (int row = row(top); row <= row(bottom); row++) {
+            for (int column = column(left); column <= column(right); column++) {
+                int cell = row * columns + column;
+                for (int i = vertexStart[cell]; i < vertexStart[cell + 1]; i++) {
+                    int v = cellVertices[i];
+                    int x = graph.getX(v);
+                    int y = graph.getY(v);
+                    if (x >= left && x <= right && y >= top && y <= bottom) {
+                        action.accept(v);
+                    }
+                }
+            }
+        }
+    }
+
+    // Gets the number of vertices inside the rectangle, edges included.
+    public int countVerticesIn(int left, int top, int right, int bottom) {
+        int[] count = new int[1];
+        forEachVertexIn(left, top, right, bottom, v -> count[0]++);
+        return count[0];
+    }
+
+    // Gets the vertex closest to the point (x, y), which can be anywhere, or -1 if the graph has no vertices. Ties go to the lower
+    // index. Rings of cells are searched outwards from the point's cell until no cell further out could hold anything closer.
+    public int nearestVertex(int x, int y) {
+        int centreColumn = column(x);
+        int centreRow = row(y);
+        int best = -1;
+        long bestSquared = Long.MAX_VALUE;
+        int rings = Math.max(columns, rows);
+        for (int ring = 0; ring < rings; ring++) {
+            for (int row = centreRow - ring; row <= centreRow + ring; row++) {
+                if (row < 0 || row >= rows) {
+                    continue;
+                }
+                boolean edgeRow = row == centreRow - ring || row == centreRow + ring;
+                int step = edgeRow ? 1 : 2 * ring; // Only the cells on the ring itself; the inside was searched already.
+                for (int column = centreColumn - ring; column <= centreColumn + ring; column += Math.max(step, 1)) {
+                    if (column < 0 || column >= columns) {
+                        continue;
+                    }
+                    int cell = row * columns + column;
+                    for (int i = vertexStart[cell]; i < vertexStart[cell + 1]; i++) {
+                        int v = cellVertices[i];
+                        long dx = (long) graph.getX(v) - x;
+                        long dy = (long) graph.getY(v) - y;
+                        long squared = dx * dx + dy * dy;
+                        if (squared < bestSquared || (squared == bestSquared && v < best)) {
+                            best = v;
+                            bestSquared = squared;
+                        }
+                    }
+                }
+            }
+            // Every cell on the next ring is at least ring whole cells away from the point.
+            double reach = (double) ring * cellSize;
+            if (best >= 0 && (double) bestSquared < reach * reach) {
+                break;
+            }
+        }
+        return best;
+    }
+
+    // Calls action with every edge whose bounding box overlaps the rectangle, each edge once. That includes every edge that crosses
+    // the rectangle, and a few that pass close by its corners.
+    public void forEachEdgeIn(int left, int top, int right, int bottom, IntConsumer action) {
+        if (right < left || bottom < top) {
+            return;
+        }
+        for (int row = Math.max(0, row(top) - SPAN); row <= row(bottom); row++) {
+            for (int column = Math.max(0, column(left) - SPAN); column <= column(right); column++) {
+                int cell = row * columns + column;
+                for (int i = edgeStart[cell]; i < edgeStart[cell + 1]; i++) {
+                    if (overlaps(cellEdges[i], left, top, right, bottom)) {
+                        action.accept(cellEdges[i]);
+                    }
+                }
+            }
+        }
+        for (int e : longEdges) {
+            if (overlaps(e, left, top, right, bottom)) {
+                action.accept(e);
+            }
+        }
+    }
+
+    // Whether or not an edge's bounding box overlaps the rectangle.
+    private boolean overlaps(int edge, int left, int top, int right, int bottom) {
+        int ax = graph.getX(edgeFrom[edge]);
+        int ay = graph.getY(edgeFrom[edge]);
+        int bx = graph.getX(edgeTo[edge]);
+        int by = graph.getY(edgeTo[edge]);
+        return Math.max(ax, bx) >= left && Math.min(ax, bx) <= right && Math.max(ay, by) >= top && Math.min(ay, by) <= bottom;
+    }
+
+    // Gets the column of the grid that an x coordinate falls in, clamped to the grid.
+    private int column(int x) {
+        return (int) Math.max(0, Math.min(columns - 1, ((long) x - minX) / cellSize));
+    }
+
+    // Gets the row of the grid that a y coordinate falls in, clamped to the grid.
+    private int row(int y) {
+        return (int) Math.max(0, Math.min(rows - 1, ((long) y - minY) / cellSize));
+    }
+}
@@ -0,0 +1,88 @@
+package dijkstra;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+
+// The following is a vertex class to go with our graph class.
+class Vertex {
+    private String name;
+    private int x;
+    private int y;
+    private WeakReference<CsrGraph>[] graphs; // The graphs this vertex has been added to, which need to know when it changes. Held weakly so a vertex does not keep old graphs alive.
+
+    // Constructor
+    public Vertex(String name, int x, int y){
+        this.name = name;
+        this.x = x;
+        this.y = y;
+    }
+
+    // Another constructor where x and y are random numbers between 20 and 480. However, no vertex can be within 20 pixels of another vertex.
+    // It only tries again once, so the spacing is not guaranteed; VertexPlacer guarantees it, is seeded, and scales to millions of vertices.
+    public Vertex(String name, Vertex[] vertices){
+        this.name = name;
+        this.x = (int)(Math.random() * 430) + 50;
+        this.y = (int)(Math.random() * 430) + 50;
+        for(Vertex v : vertices){
+            if (v != null) {
+                if (Math.abs(v.getX() - this.x) < 50 || Math.abs(v.getY() - this.y) < 50) {
+                    this.x = (int) (Math.random() * 430) + 50;
+                    this.y = (int) (Math.random() * 430) + 50;
+                }
+            }
+        }
+    }
+
+    // Getters
+    public String getName(){
+        return name;
+    }
+    public int getX(){
+        return x;
+    }
+    public int getY(){
+        return y;
+    }
+
+    // Setters
+    public void setName(String name){
+        this.name = name;
+        changed();
+    }
+    public void setX(int x){
+        this.x = x;
+        changed();
+    }
+    public void setY(int y){
+        this.y = y;
+        changed();
+    }
+
+    // Remembers a graph that this vertex has been added to, and forgets any that have been garbage collected.
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    void addGraph(CsrGraph graph) {
+        int count = 0;
+        WeakReference<CsrGraph>[] live = new WeakReference[graphs == null ? 1 : graphs.length + 1];
+        if (graphs != null) {
+            for (WeakReference<CsrGraph> reference : graphs) {
+                if (reference.get() != null) {
+                    live[count++] = reference;
+                }
+            }
+        }
+        live[count++] = new WeakReference<>(graph);
+        graphs = Arrays.copyOf(live, count);
+    }
+
+    // Tells every graph this vertex belongs to that its name or coordinates changed.
+    private void changed() {
+        if (graphs != null) {
+            for (WeakReference<CsrGraph> reference : graphs) {
+                CsrGraph graph = reference.get();
+                if (graph != null) {
+                    graph.vertexChanged();
+                }
+            }
+        }
+    }
+}
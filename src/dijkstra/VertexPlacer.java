@@ -0,0 +1,161 @@
+package dijkstra;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+// Places points at random in a rectangle so that no two are closer than a minimum spacing, the same way every time for the same
+// seed. Candidates are thrown at random and kept if nothing placed so far is too close. The points kept so far are hashed into a
+// grid of cells spacing / sqrt(2) wide, so a cell can hold at most one point and a candidate only has to be compared with the
+// 5 x 5 block of cells around it. Placing N points is O(N) as long as the rectangle is not close to full; forCount sizes the
+// square so that N points fill it about half as densely as random placement can.
+class VertexPlacer {
+    private static final int AREA_PER_POINT = 3; // The area forCount allows for each point, in units of spacing squared
+    private static final int MAX_MISSES = 1000; // Candidates rejected in a row before place decides the rectangle is full
+    private static final int EMPTY = -1;
+
+    private final int left;
+    private final int top;
+    private final int width;
+    private final int height;
+    private final int spacing;
+    private final double cellSize;
+    private final int columns;
+    private final int rows;
+    private final int[] grid; // The point in each cell, or EMPTY
+    private final SplittableRandom random;
+
+    private int[] xs = new int[16];
+    private int[] ys = new int[16];
+    private int count;
+
+    // Creates a placer for the rectangle width by height with its top-left corner at (left, top).
+    public VertexPlacer(int left, int top, int width, int height, int spacing, long seed) {
+        if (width <= 0 || height <= 0 || spacing <= 0) {
+            throw new IllegalArgumentException("The rectangle and the spacing must be bigger than 0");
+        }
+        this.left = left;
+        this.top = top;
+        this.width = width;
+        this.height = height;
+        this.spacing = spacing;
+        this.cellSize = spacing / Math.sqrt(2);
+        this.columns = (int) (width / cellSize) + 1;
+        this.rows = (int) (height / cellSize) + 1;
+        if ((long) columns * rows > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("The rectangle is too big for the spacing");
+        }
+        this.grid = new int[columns * rows];
+        Arrays.fill(grid, EMPTY);
+        this.random = new SplittableRandom(seed);
+    }
+
+    // Creates a placer for a square with its top-left corner at (left, top) that count points at the given spacing fit in easily.
+    public static VertexPlacer forCount(int count, int spacing, int left, int top, long seed) {
+        int side = (int) Math.min(Integer.MAX_VALUE - 1, (long) Math.ceil(Math.sqrt((double) AREA_PER_POINT * Math.max(count, 1)) * spacing));
+        return new VertexPlacer(left, top, side, side, spacing, seed);
+    }
+
+    // Places points until there are count of them. Throws IllegalStateException if the rectangle fills up first.
+    public void place(int count) {
+        int misses = 0;
+        while (this.count < count) {
+            if (tryPlace(1) >= 0) {
+                misses = 0;
+            } else if (++misses == MAX_MISSES) {
+                throw new IllegalStateException("Only " + this.count + " of " + count + " vertices fit " + spacing + " apart in " + width + " x " + height);
+            }
+        }
+    }
+
+    // Tries up to attempts random points and keeps the first one that is far enough from every point placed so far.
+    // Returns the index of the new point, or -1 if every attempt was too close to another point.
+    public int tryPlace(int attempts) {
+        for (int i = 0; i < attempts; i++) {
+            int x = left + random.nextInt(width);
+            int y = top + random.nextInt(height);
+            if (isFree(x, y)) {
+                return add(x, y);
+            }
+        }
+        return -1;
+    }
+
+    // Whether or not a point could be placed at (x, y): it is inside the rectangle and at least spacing from every placed point.
+    public boolean isFree(int x, int y) {
+        if (x < left || y < top || x - left >= width || y - top >= height) {
+            return false;
+        }
+        int column = column(x);
+        int row = row(y);
+        long spacingSquared = (long) spacing * spacing;
+        for (int r = Math.max(0, row - 2); r <= Math.min(rows - 1, row + 2); r++) {
+            for (int c = Math.max(0, column - 2); c <= Math.min(columns - 1, column + 2); c++) {
+                int other = grid[r * columns + c];
+                if (other != EMPTY) {
+                    long dx = xs[other] - x;
+                    long dy = ys[other] - y;
+                    if (dx * dx + dy * dy < spacingSquared) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    // Gets the number of points placed.
+    public int getCount() {
+        return count;
+    }
+
+    // Gets the x coordinate of a placed point.
+    public int getX(int point) {
+        return xs[point];
+    }
+
+    // Gets the y coordinate of a placed point.
+    public int getY(int point) {
+        return ys[point];
+    }
+
+    // Gets the x coordinates of every placed point, in the order they were placed.
+    public int[] getXs() {
+        return Arrays.copyOf(xs, count);
+    }
+
+    // Gets the y coordinates of every placed point, in the order they were placed.
+    public int[] getYs() {
+        return Arrays.copyOf(ys, count);
+    }
+
+    // Makes a vertex at each placed point, named prefix followed by its index.
+    public Vertex[] toVertices(String prefix) {
+        Vertex[] vertices = new Vertex[count];
+        for (int i = 0; i < count; i++) {
+            vertices[i] = new Vertex(prefix + i, xs[i], ys[i]);
+        }
+        return vertices;
+    }
+
+    // Keeps a point that isFree has approved.
+    private int add(int x, int y) {
+        if (count == xs.length) {
+            xs = Arrays.copyOf(xs, count + (count >> 1));
+            ys = Arrays.copyOf(ys, xs.length);
+        }
+        xs[count] = x;
+        ys[count] = y;
+        grid[row(y) * columns + column(x)] = count;
+        return count++;
+    }
+
+    // Gets the grid column of an x coordinate inside the rectangle.
+    private int column(int x) {
+        return Math.min(columns - 1, (int) ((x - (long) left) / cellSize));
+    }
+
+    // Gets the grid row of a y coordinate inside the rectangle.
+    private int row(int y) {
+        return Math.min(rows - 1, (int) ((y - (long) top) / cellSize));
+    }
+}
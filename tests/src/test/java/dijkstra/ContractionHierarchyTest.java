@@ -0,0 +1,65 @@
+package dijkstra;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Checks ContractionHierarchy queries against CsrGraph.dijkstra. Ties mean the two can pick different paths, so each path is checked
+// on its own and only the lengths are compared.
+class ContractionHierarchyTest {
+    private static final int QUERY_COUNT = 50; // The number of start-destination pairs tried on each graph
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("dijkstra.TestGraphs#shapes")
+    void pathsMatchDijkstra(String shape, CsrGraph csrGraph) {
+        GraphSnapshot graph = csrGraph.snapshot();
+        ContractionHierarchy hierarchy = ContractionHierarchy.build(graph);
+        ContractionHierarchy.Query query = ContractionHierarchy.forCurrentThread();
+        int[] endpoints = GraphGenerator.pickVertices(graph.getVertexCount(), QUERY_COUNT + 1, 11);
+        for (int i = 0; i <= QUERY_COUNT; i++) {
+            int start = endpoints[i];
+            // The last query goes to the last vertex, which the zero-weight copies leave unconnected.
+            int destination = i < QUERY_COUNT ? endpoints[i + 1] : graph.getVertexCount() - 1;
+            String pair = shape + ", " + start + " to " + destination;
+
+            int[] expected = csrGraph.dijkstra(start, destination);
+            int[] actual = hierarchy.dijkstra(start, destination);
+            int expectedLength = pathLength(graph, expected, start, destination, pair + " (Dijkstra)");
+            int actualLength = pathLength(graph, actual, start, destination, pair + " (hierarchy)");
+            assertEquals(expectedLength, actualLength, pair + ": path length");
+
+            query.shortestPath(hierarchy, start, destination);
+            assertEquals(expectedLength, query.getDistance(), pair + ": distance");
+        }
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("dijkstra.TestGraphs#shapes")
+    void everyVertexReachesItself(String shape, CsrGraph csrGraph) {
+        GraphSnapshot graph = csrGraph.snapshot();
+        ContractionHierarchy hierarchy = ContractionHierarchy.build(graph);
+        for (int v : GraphGenerator.pickVertices(graph.getVertexCount(), 10, 13)) {
+            int[] path = hierarchy.dijkstra(v, v);
+            assertEquals(0, pathLength(graph, path, v, v, shape + ", " + v + " to itself"));
+        }
+    }
+
+    // Checks that a destination-first path runs from start to destination along real edges, and adds up their weights.
+    // An empty path means there is no route, and is given as Integer.MAX_VALUE.
+    private static int pathLength(GraphSnapshot graph, int[] path, int start, int destination, String pair) {
+        if (path.length == 0) {
+            return Integer.MAX_VALUE;
+        }
+        assertEquals(destination, path[0], pair + ": first vertex");
+        assertEquals(start, path[path.length - 1], pair + ": last vertex");
+        int length = 0;
+        for (int i = path.length - 1; i > 0; i--) {
+            int weight = graph.getWeight(path[i], path[i - 1]);
+            assertTrue(weight >= 0, pair + ": no edge from " + path[i] + " to " + path[i - 1]);
+            length += weight;
+        }
+        return length;
+    }
+}
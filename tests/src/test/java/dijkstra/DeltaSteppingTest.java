@@ -0,0 +1,104 @@
+package dijkstra;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Checks DeltaStepping against the sequential Dijkstra in ShortestPathContext: the distances must match exactly, and the predecessors
+// must form a tree of real edges that leads from every reached vertex back to a source.
+class DeltaSteppingTest {
+    private static final int SOURCE_COUNT = 4; // The number of sources each graph is searched from
+
+    private static ForkJoinPool pool; // Several workers, so the phases really are split up even on a small machine
+
+    @BeforeAll
+    static void startPool() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterAll
+    static void stopPool() {
+        pool.shutdown();
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("dijkstra.TestGraphs#shapes")
+    void singleSourceMatchesDijkstra(String shape, CsrGraph csrGraph) {
+        GraphSnapshot graph = csrGraph.snapshot();
+        ShortestPathContext context = ShortestPathContext.forCurrentThread();
+        for (int delta : deltas(graph)) {
+            DeltaStepping search = new DeltaStepping(graph, pool, delta);
+            for (int source : GraphGenerator.pickVertices(graph.getVertexCount(), SOURCE_COUNT, delta)) {
+                search.singleSource(source);
+                context.singleSource(graph, source);
+                String query = shape + ", delta " + delta + ", source " + source;
+                assertDistances(graph, context, search, query);
+                assertTree(graph, search, new int[] {source}, query);
+            }
+        }
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("dijkstra.TestGraphs#shapes")
+    void multiSourceMatchesDijkstra(String shape, CsrGraph csrGraph) {
+        GraphSnapshot graph = csrGraph.snapshot();
+        ShortestPathContext context = ShortestPathContext.forCurrentThread();
+        int[] sources = GraphGenerator.pickVertices(graph.getVertexCount(), SOURCE_COUNT, 7);
+        for (int delta : deltas(graph)) {
+            DeltaStepping search = new DeltaStepping(graph, pool, delta);
+            search.multiSource(sources);
+            context.multiSource(graph, sources);
+            String query = shape + ", delta " + delta;
+            assertDistances(graph, context, search, query);
+            assertTree(graph, search, sources, query);
+        }
+    }
+
+    // Gets the deltas to try: 1, which makes every positive edge heavy; the default; and one above the heaviest edge, which makes
+    // every edge light.
+    private static int[] deltas(GraphSnapshot graph) {
+        return new int[] {1, DeltaStepping.defaultDelta(graph), graph.getMaxWeight() + 1};
+    }
+
+    private static void assertDistances(GraphSnapshot graph, ShortestPathContext context, DeltaStepping search, String query) {
+        for (int v = 0; v < graph.getVertexCount(); v++) {
+            assertEquals(context.getDistance(v), search.getDistance(v), query + ": distance to " + v);
+        }
+    }
+
+    // Checks that each reached vertex other than a source has a predecessor joined to it by an edge that accounts for the whole
+    // difference in distance, and that following the predecessors reaches a source without going round a cycle.
+    private static void assertTree(GraphSnapshot graph, DeltaStepping search, int[] sources, String query) {
+        int vertexCount = graph.getVertexCount();
+        boolean[] isSource = new boolean[vertexCount];
+        for (int source : sources) {
+            isSource[source] = true;
+            assertEquals(-1, search.getPredecessor(source), query + ": predecessor of source " + source);
+        }
+        for (int v = 0; v < vertexCount; v++) {
+            int distance = search.getDistance(v);
+            int predecessor = search.getPredecessor(v);
+            if (distance == Integer.MAX_VALUE || isSource[v]) {
+                assertEquals(-1, predecessor, query + ": predecessor of " + v);
+                continue;
+            }
+            assertTrue(predecessor >= 0, query + ": " + v + " was reached but has no predecessor");
+            int weight = graph.getWeight(predecessor, v);
+            assertTrue(weight >= 0, query + ": no edge from predecessor " + predecessor + " to " + v);
+            assertEquals(distance, search.getDistance(predecessor) + weight, query + ": distance to " + v + " through " + predecessor);
+
+            int steps = 0;
+            int u = v;
+            while (!isSource[u]) {
+                assertTrue(++steps < vertexCount, query + ": the predecessors of " + v + " go round a cycle");
+                u = search.getPredecessor(u);
+            }
+        }
+    }
+}
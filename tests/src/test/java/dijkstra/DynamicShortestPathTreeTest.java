@@ -0,0 +1,138 @@
+package dijkstra;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Checks that a DynamicShortestPathTree following a CsrGraph stays equal to a full recompute while random edges are restricted,
+// reweighted and added through the graph. After every change the labels are compared with NearestExits, and the parents are checked
+// to be real edges that account for the whole distance.
+class DynamicShortestPathTreeTest {
+    private static final int STEP_COUNT = 300; // The number of random changes made to each graph
+    private static final int SPARE_EDGES = STEP_COUNT * 4; // Room for every change to be a bulk add of up to four edges
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("dijkstra.TestGraphs#shapes")
+    void exitTreeFollowsRandomChanges(String shape, CsrGraph generated) {
+        CsrGraph graph = TestGraphs.withSpareEdges(generated, SPARE_EDGES);
+        int[] exits = GraphGenerator.pickVertices(graph.getVertexCount(), 3, 19);
+        checkRandomChanges(shape, graph, exits, 23);
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("dijkstra.TestGraphs#shapes")
+    void singleSourceTreeFollowsRandomChanges(String shape, CsrGraph generated) {
+        CsrGraph graph = TestGraphs.withSpareEdges(generated, SPARE_EDGES);
+        int[] source = GraphGenerator.pickVertices(graph.getVertexCount(), 1, 29);
+        checkRandomChanges(shape, graph, source, 31);
+    }
+
+    @Test
+    void addingAVertexMakesTheTreeStale() {
+        CsrGraph graph = new CsrGraph(3, 2);
+        graph.addVertex(new Vertex("A", 0, 0));
+        graph.addVertex(new Vertex("B", 100, 0));
+        graph.addEdge(0, 1, 5);
+        DynamicShortestPathTree tree = new DynamicShortestPathTree(graph, 0);
+        assertEquals(5, tree.getDistance(1));
+        graph.addVertex(new Vertex("C", 200, 0));
+        assertThrows(IllegalStateException.class, () -> tree.getDistance(1));
+    }
+
+    @Test
+    void detachedTreeStopsFollowing() {
+        CsrGraph graph = new CsrGraph(2, 2);
+        graph.addVertex(new Vertex("A", 0, 0));
+        graph.addVertex(new Vertex("B", 100, 0));
+        graph.addEdge(0, 1, 5);
+        DynamicShortestPathTree tree = new DynamicShortestPathTree(graph, 0);
+        tree.detach();
+        graph.restrict(0, 1); // Must not be repaired into a tree nobody reads.
+        assertThrows(IllegalStateException.class, () -> tree.getDistance(1));
+    }
+
+    // Makes STEP_COUNT random changes to the graph, checking the tree against a recompute after each one. A change restricts an
+    // edge, gives an edge a new weight, adds an edge between two random vertices, or adds a few edges at once with addEdges.
+    private static void checkRandomChanges(String shape, CsrGraph graph, int[] sources, long seed) {
+        DynamicShortestPathTree tree = new DynamicShortestPathTree(graph, sources);
+        SplittableRandom random = new SplittableRandom(seed);
+        int vertexCount = graph.getVertexCount();
+        assertTree(graph, tree, sources, shape + ", before any change");
+        for (int step = 0; step < STEP_COUNT; step++) {
+            GraphSnapshot snapshot = graph.snapshot();
+            int[] offsets = snapshot.getOffsets();
+            int[] targets = snapshot.getTargets();
+            int kind = random.nextInt(4);
+            int from = random.nextInt(vertexCount);
+            String change;
+            if (kind <= 1 && offsets[from + 1] > offsets[from]) { // Change an existing edge; tree edges are the interesting ones.
+                int to = targets[offsets[from] + random.nextInt(offsets[from + 1] - offsets[from])];
+                if (tree.getParent(from) >= 0 && random.nextBoolean()) {
+                    to = tree.getParent(from);
+                }
+                if (kind == 0) {
+                    graph.restrict(from, to);
+                    change = "restrict " + from + "-" + to;
+                } else {
+                    int weight = random.nextInt(300);
+                    graph.addEdge(from, to, weight);
+                    change = "reweight " + from + "-" + to + " to " + weight;
+                }
+            } else if (kind == 2) {
+                int to = random.nextInt(vertexCount);
+                int weight = random.nextInt(300);
+                graph.addEdge(from, to, weight);
+                change = "add " + from + "-" + to + " weighing " + weight;
+            } else {
+                int count = 1 + random.nextInt(4);
+                int[] a = new int[count];
+                int[] b = new int[count];
+                int[] w = new int[count];
+                for (int i = 0; i < count; i++) {
+                    a[i] = random.nextInt(vertexCount);
+                    b[i] = random.nextInt(vertexCount);
+                    w[i] = random.nextInt(300);
+                }
+                graph.addEdges(a, b, w, count);
+                change = "add " + count + " edges at once";
+            }
+            assertTree(graph, tree, sources, shape + ", step " + step + " (" + change + ")");
+        }
+    }
+
+    // Checks the tree's distances against NearestExits computed from scratch, that every parent is joined to its child by an edge of
+    // the current graph that accounts for the whole difference in distance, and that following the parents reaches a source.
+    private static void assertTree(CsrGraph graph, DynamicShortestPathTree tree, int[] sources, String query) {
+        GraphSnapshot snapshot = graph.snapshot();
+        int vertexCount = snapshot.getVertexCount();
+        NearestExits expected = NearestExits.compute(snapshot, sources);
+        boolean[] isSource = new boolean[vertexCount];
+        for (int source : sources) {
+            isSource[source] = true;
+        }
+        for (int v = 0; v < vertexCount; v++) {
+            int distance = tree.getDistance(v);
+            int parent = tree.getParent(v);
+            assertEquals(expected.getDistance(v), distance, query + ": distance from " + v);
+            if (isSource[v] || distance == Integer.MAX_VALUE) {
+                assertEquals(-1, parent, query + ": parent of " + v);
+                continue;
+            }
+            assertTrue(parent >= 0, query + ": " + v + " was reached but has no parent");
+            int weight = snapshot.getWeight(v, parent);
+            assertTrue(weight >= 0, query + ": no edge from " + v + " to its parent " + parent);
+            assertEquals(distance, tree.getDistance(parent) + weight, query + ": distance from " + v + " through " + parent);
+
+            int steps = 0;
+            for (int u = v; !isSource[u]; u = tree.getParent(u)) {
+                assertTrue(++steps < vertexCount, query + ": the parents of " + v + " go round a cycle");
+            }
+        }
+    }
+}
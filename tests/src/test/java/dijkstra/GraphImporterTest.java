@@ -0,0 +1,90 @@
+package dijkstra;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Checks that GraphImporter reads the formats it supports, and turns bad input, including weights heavy enough to overflow a
+// distance, into an IOException naming the file and line.
+class GraphImporterTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsDimacsWithCoordinates() throws IOException {
+        Path graphFile = write("road.gr", "c a triangle\np sp 3 6\na 1 2 4\na 2 1 4\na 2 3 5\na 3 2 5\na 1 3 12\na 3 1 12\n");
+        Path coordinates = write("road.co", "p aux sp co 3\nv 1 10 20\nv 2 30.5 -40\nv 3 .5 0\n");
+        CsrGraph graph = new GraphImporter().readDimacs(graphFile, coordinates);
+        assertEquals(3, graph.getVertexCount());
+        assertEquals("1", graph.getVertices()[0].getName());
+        assertEquals(31, graph.getVertices()[1].getX());
+        assertEquals(-40, graph.getVertices()[1].getY());
+        assertEquals(1, graph.getVertices()[2].getX());
+        assertEquals(4, graph.getWeight(0, 1));
+        assertEquals(12, graph.getWeight(0, 2));
+        ShortestPathContext context = ShortestPathContext.forCurrentThread();
+        context.shortestPath(graph.snapshot(), 0, 2);
+        assertEquals(9, context.getDistance(2));
+    }
+
+    @Test
+    void readsEdgeListWithDefaultWeights() throws IOException {
+        Path edgeFile = write("edges.csv", "from,to,weight\n0,1,3\n# a comment\n1,2\n");
+        CsrGraph graph = new GraphImporter().readEdgeList(edgeFile, null);
+        assertEquals(3, graph.getVertexCount());
+        assertEquals(3, graph.getWeight(0, 1));
+        assertEquals(1, graph.getWeight(1, 2));
+    }
+
+    @Test
+    void readsWeightsUpToTheOverflowLimit() throws IOException {
+        int heaviest = Integer.MAX_VALUE / 3; // Three vertices, so weight * 3 still fits in an int.
+        Path edgeFile = write("heavy.csv", "0,1," + heaviest + "\n1,2," + heaviest + "\n");
+        CsrGraph graph = new GraphImporter().readEdgeList(edgeFile, null);
+        ShortestPathContext context = ShortestPathContext.forCurrentThread();
+        context.singleSource(graph.snapshot(), 0);
+        assertEquals(2 * heaviest, context.getDistance(2));
+    }
+
+    @Test
+    void rejectsMaxWeightEdgeList() throws IOException {
+        Path edgeFile = write("max.csv", "0,1,1\n1,2," + Integer.MAX_VALUE + "\n");
+        IOException error = assertThrows(IOException.class, () -> new GraphImporter().readEdgeList(edgeFile, null));
+        assertTrue(error.getMessage().startsWith(edgeFile + ":2: weight " + Integer.MAX_VALUE), error.getMessage());
+    }
+
+    @Test
+    void rejectsMaxWeightDimacs() throws IOException {
+        Path graphFile = write("max.gr", "p sp 2 2\na 1 2 " + Integer.MAX_VALUE + "\na 2 1 " + Integer.MAX_VALUE + "\n");
+        IOException error = assertThrows(IOException.class, () -> new GraphImporter().readDimacs(graphFile, null));
+        assertTrue(error.getMessage().startsWith(graphFile + ":2: weight "), error.getMessage());
+    }
+
+    @Test
+    void rejectsMalformedInput() throws IOException {
+        assertRejected("p sp 2 1\na 1 x 3\n", "expected a number", 2);
+        assertRejected("p sp 2 1\na 1 3 3\n", "vertex 3 is more than 2", 2);
+        assertRejected("p sp 2 1\na 0 1 3\n", "vertex 0 is less than 1", 2);
+        assertRejected("p sp 2 1\na 1 2 -3\n", "negative weight -3", 2);
+        assertRejected("p sp 2 1\na 1 2 99999999999\n", "number out of range", 2);
+    }
+
+    // Imports a DIMACS file and checks that it fails with the given message on the given line.
+    private void assertRejected(String contents, String message, int line) throws IOException {
+        Path graphFile = write("bad.gr", contents);
+        IOException error = assertThrows(IOException.class, () -> new GraphImporter().readDimacs(graphFile, null));
+        assertEquals(graphFile + ":" + line + ": " + message, error.getMessage());
+    }
+
+    private Path write(String name, String contents) throws IOException {
+        return Files.write(directory.resolve(name), contents.getBytes(StandardCharsets.US_ASCII));
+    }
+}
@@ -0,0 +1,199 @@
+package dijkstra;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Checks that a graph written by MappedGraph comes back the same, through the mapped queries, toSnapshot and toCsrGraph, and that
+// open rejects a damaged header or table of contents with an IOException.
+class MappedGraphTest {
+    private static final int HEADER_BYTES = 16; // Where the table of contents starts
+    private static final int ENTRY_BYTES = 24; // The size of one table of contents entry: id, reserved, offset, length
+
+    @TempDir
+    Path directory;
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("dijkstra.TestGraphs#shapes")
+    void roundTripKeepsGraphRestrictionsAndExitLabels(String shape, CsrGraph graph) throws IOException {
+        int vertexCount = graph.getVertexCount();
+        int[] picked = GraphGenerator.pickVertices(vertexCount, 8, 37);
+        for (int i = 0; i < 4; i++) { // Restrict an edge out of each of four vertices, where they have one.
+            GraphSnapshot snapshot = graph.snapshot();
+            int v = picked[i];
+            if (snapshot.getOffsets()[v + 1] > snapshot.getOffsets()[v]) {
+                graph.restrict(v, snapshot.getTargets()[snapshot.getOffsets()[v]]);
+            }
+        }
+        int[] exits = {picked[4], picked[5]};
+        NearestExits labels = NearestExits.compute(graph, exits);
+        Path file = directory.resolve("graph.djkg");
+        MappedGraph.write(graph, labels, file);
+
+        MappedGraph mapped = MappedGraph.open(file);
+        GraphSnapshot expected = graph.snapshot();
+        assertEquals(vertexCount, mapped.getVertexCount(), shape);
+        assertEquals(expected.getEdgeCount(), mapped.getEdgeCount(), shape);
+        for (int v = 0; v < vertexCount; v++) {
+            assertEquals(expected.getName(v), mapped.getName(v), shape + ": name of " + v);
+            assertEquals(expected.getX(v), mapped.getX(v), shape + ": x of " + v);
+            assertEquals(expected.getY(v), mapped.getY(v), shape + ": y of " + v);
+        }
+        assertEquals(graph.getRestrictedEdges().length / 3, mapped.getRestrictedCount(), shape + ": restricted edges");
+
+        assertTrue(mapped.hasExitLabels(), shape);
+        assertArrayEquals(exits, mapped.getExits(), shape);
+        for (int v = 0; v < vertexCount; v++) {
+            assertEquals(labels.getDistance(v), mapped.getExitDistance(v), shape + ": exit distance of " + v);
+            assertEquals(labels.getNextHop(v), mapped.getNextHop(v), shape + ": next hop of " + v);
+            assertEquals(labels.getExit(v), mapped.getExit(v), shape + ": exit of " + v);
+        }
+
+        ShortestPathContext context = ShortestPathContext.forCurrentThread();
+        for (int i = 6; i < picked.length; i++) {
+            context.shortestPath(expected, picked[0], picked[i]);
+            int distance = context.getDistance(picked[i]);
+            context.shortestPath(mapped, picked[0], picked[i]);
+            assertEquals(distance, context.getDistance(picked[i]), shape + ": mapped distance from " + picked[0] + " to " + picked[i]);
+        }
+
+        GraphSnapshot copied = mapped.toSnapshot();
+        assertArrayEquals(expected.getOffsets(), copied.getOffsets(), shape + ": toSnapshot offsets");
+        assertArrayEquals(expected.getTargets(), copied.getTargets(), shape + ": toSnapshot targets");
+        assertArrayEquals(expected.getWeights(), copied.getWeights(), shape + ": toSnapshot weights");
+
+        CsrGraph reloaded = mapped.toCsrGraph();
+        GraphSnapshot rebuilt = reloaded.snapshot();
+        assertArrayEquals(expected.getOffsets(), rebuilt.getOffsets(), shape + ": toCsrGraph offsets");
+        for (int v = 0; v < vertexCount; v++) { // Rows can come back in another order, so compare edge by edge.
+            for (int slot = expected.getOffsets()[v]; slot < expected.getOffsets()[v + 1]; slot++) {
+                int to = expected.getTargets()[slot];
+                assertEquals(expected.getWeights()[slot], rebuilt.getWeight(v, to), shape + ": toCsrGraph edge " + v + "-" + to);
+            }
+        }
+        assertArrayEquals(graph.getRestrictedEdges(), reloaded.getRestrictedEdges(), shape + ": toCsrGraph restricted edges");
+    }
+
+    @Test
+    void fileWithoutExitLabelsHasNone() throws IOException {
+        Path file = writeSmallGraph();
+        assertFalse(MappedGraph.open(file).hasExitLabels());
+    }
+
+    @Test
+    void rejectsWrongMagic() throws IOException {
+        assertRejected(writeSmallGraph(), 0, 0x12345678);
+    }
+
+    @Test
+    void rejectsOtherFormatVersion() throws IOException {
+        assertRejected(writeSmallGraph(), 4, MappedGraph.FORMAT_VERSION + 1);
+    }
+
+    @Test
+    void rejectsNegativeVertexCount() throws IOException {
+        assertRejected(writeSmallGraph(), 8, -1);
+    }
+
+    @Test
+    void rejectsVertexCountThatDisagreesWithSections() throws IOException {
+        assertRejected(writeSmallGraph(), 8, 4);
+    }
+
+    @Test
+    void rejectsSectionCountPastEndOfFile() throws IOException {
+        assertRejected(writeSmallGraph(), 12, 1 << 20);
+    }
+
+    @Test
+    void rejectsSectionPastEndOfFile() throws IOException {
+        Path file = writeSmallGraph();
+        assertRejected(file, HEADER_BYTES + 8, Files.size(file));
+    }
+
+    @Test
+    void rejectsNegativeSectionLength() throws IOException {
+        assertRejected(writeSmallGraph(), HEADER_BYTES + 16, -8L);
+    }
+
+    @Test
+    void rejectsSectionTooBigToMap() throws IOException {
+        assertRejected(writeSmallGraph(), HEADER_BYTES + 16, Integer.MAX_VALUE + 8L);
+    }
+
+    @Test
+    void rejectsRepeatedSection() throws IOException {
+        Path file = writeSmallGraph();
+        int firstId = read(file, HEADER_BYTES);
+        assertRejected(file, HEADER_BYTES + ENTRY_BYTES, firstId);
+    }
+
+    @Test
+    void rejectsMissingSection() throws IOException {
+        assertRejected(writeSmallGraph(), HEADER_BYTES, 99); // An id from a later version is skipped, which leaves the offsets missing.
+    }
+
+    @Test
+    void rejectsTruncatedFile() throws IOException {
+        Path file = writeSmallGraph();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 8);
+        }
+        assertThrows(IOException.class, () -> MappedGraph.open(file));
+    }
+
+    // Writes a three-vertex path with no exit labels.
+    private Path writeSmallGraph() throws IOException {
+        CsrGraph graph = new CsrGraph(3, 2);
+        graph.addVertex(new Vertex("A", 0, 0));
+        graph.addVertex(new Vertex("B", 100, 0));
+        graph.addVertex(new Vertex("C", 200, 0));
+        graph.addEdge(0, 1, 5);
+        graph.addEdge(1, 2, 7);
+        Path file = directory.resolve("small.djkg");
+        MappedGraph.write(graph, file);
+        return file;
+    }
+
+    // Overwrites the int at a position in the file, then checks that opening it fails.
+    private static void assertRejected(Path file, long position, int value) throws IOException {
+        assertRejected(file, position, ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(0, value));
+    }
+
+    // Overwrites the long at a position in the file, then checks that opening it fails.
+    private static void assertRejected(Path file, long position, long value) throws IOException {
+        assertRejected(file, position, ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putLong(0, value));
+    }
+
+    // Writes bytes over a position in the file, then checks that opening it fails.
+    private static void assertRejected(Path file, long position, ByteBuffer bytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(bytes, position);
+        }
+        assertThrows(IOException.class, () -> MappedGraph.open(file));
+    }
+
+    // Reads the int at a position in the file.
+    private static int read(Path file, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+        try (FileChannel channel = FileChannel.open(file)) {
+            channel.read(buffer, position);
+        }
+        return buffer.getInt(0);
+    }
+}
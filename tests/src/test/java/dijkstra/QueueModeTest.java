@@ -0,0 +1,92 @@
+package dijkstra;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Checks every ShortestPathContext queue mode, and a binary heap as well as the default 4-ary one, against a plain reference Dijkstra.
+// Each graph is tried as generated and with its weights multiplied by WEIGHT_SCALE, which takes them past BUCKET_MAX_WEIGHT so AUTO
+// switches from the bucket queue to the heap and the radix heap has to spread its entries over many buckets.
+class QueueModeTest {
+    private static final int WEIGHT_SCALE = 1000; // Generated weights are in the hundreds, so this puts them in the hundreds of thousands
+    private static final int SOURCE_COUNT = 3; // The number of sources each graph is searched from
+
+    // Gets every (queue mode, heap arity) pair for every test graph, at both weight scales.
+    static Stream<Arguments> modesAndShapes() {
+        List<Arguments> cases = new ArrayList<>();
+        TestGraphs.shapes().forEach(shape -> {
+            String name = (String) shape.get()[0];
+            CsrGraph graph = (CsrGraph) shape.get()[1];
+            CsrGraph scaled = TestGraphs.withScaledWeights(graph, WEIGHT_SCALE);
+            for (QueueMode mode : QueueMode.values()) {
+                cases.add(Arguments.of(mode, 4, name, graph));
+                cases.add(Arguments.of(mode, 4, name + " x" + WEIGHT_SCALE, scaled));
+            }
+            cases.add(Arguments.of(QueueMode.HEAP, 2, name, graph));
+            cases.add(Arguments.of(QueueMode.HEAP, 2, name + " x" + WEIGHT_SCALE, scaled));
+        });
+        return cases.stream();
+    }
+
+    @ParameterizedTest(name = "{0} (arity {1}) on {2}")
+    @MethodSource("modesAndShapes")
+    void searchesMatchReference(QueueMode mode, int arity, String shape, CsrGraph csrGraph) {
+        GraphSnapshot graph = csrGraph.snapshot();
+        if (shape.endsWith(" x" + WEIGHT_SCALE)) {
+            assertTrue(graph.getMaxWeight() > QueueMode.BUCKET_MAX_WEIGHT, shape + " should have weights too heavy for the bucket queue");
+        }
+        ShortestPathContext context = ShortestPathContext.forCurrentThread();
+        context.setQueueMode(mode);
+        context.setHeapArity(arity);
+        int vertexCount = graph.getVertexCount();
+        int[] picked = GraphGenerator.pickVertices(vertexCount, SOURCE_COUNT + 3, 17);
+        for (int i = 0; i < SOURCE_COUNT; i++) {
+            int source = picked[i];
+            String query = mode + " on " + shape + ", source " + source;
+            int[] expected = TestGraphs.referenceDistances(graph, source);
+
+            context.singleSource(graph, source);
+            for (int v = 0; v < vertexCount; v++) {
+                assertEquals(expected[v], context.getDistance(v), query + ": distance to " + v);
+            }
+
+            // The last vertex is isolated in the zero-weight copies, so this also covers a destination that cannot be reached.
+            int destination = i == 0 ? vertexCount - 1 : picked[SOURCE_COUNT + i];
+            int length = context.shortestPath(graph, source, destination);
+            assertPath(graph, context.getPath(), length, source, destination, expected[destination], query + " to " + destination);
+
+            int[] targets = {picked[SOURCE_COUNT], picked[SOURCE_COUNT + 1], picked[SOURCE_COUNT + 2]};
+            int nearest = Math.min(expected[targets[0]], Math.min(expected[targets[1]], expected[targets[2]]));
+            length = context.nearestTarget(graph, source, targets);
+            int reached = length == 0 ? -1 : context.getReachedTarget();
+            assertTrue(length == 0 || reached == targets[0] || reached == targets[1] || reached == targets[2], query + ": reached a non-target");
+            assertPath(graph, context.getPath(), length, source, reached, nearest, query + " to the nearest target");
+        }
+    }
+
+    // Checks a start-first path of the given length: it is empty exactly when the distance is Integer.MAX_VALUE, and otherwise runs
+    // from start to destination along edges that add up to the distance.
+    private static void assertPath(GraphSnapshot graph, int[] path, int length, int start, int destination, int distance, String query) {
+        if (distance == Integer.MAX_VALUE) {
+            assertEquals(0, length, query + ": found a path to an unreachable vertex");
+            return;
+        }
+        assertTrue(length > 0, query + ": found no path");
+        assertEquals(start, path[0], query + ": first vertex");
+        assertEquals(destination, path[length - 1], query + ": last vertex");
+        long total = 0;
+        for (int i = 1; i < length; i++) {
+            int weight = graph.getWeight(path[i - 1], path[i]);
+            assertTrue(weight >= 0, query + ": no edge from " + path[i - 1] + " to " + path[i]);
+            total += weight;
+        }
+        assertEquals(distance, total, query + ": path length");
+    }
+}
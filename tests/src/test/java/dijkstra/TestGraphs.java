@@ -0,0 +1,97 @@
+package dijkstra;
+
+import org.junit.jupiter.params.provider.Arguments;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.stream.Stream;
+
+// The graphs the searches are checked on: each generated shape as it is, and again with every fourth edge weighing nothing and
+// an extra vertex that nothing connects to, so ties, zero-distance neighbours and unreachable vertices are all covered.
+class TestGraphs {
+    private static final int ZERO_EVERY = 4; // Every this many edges is given a weight of 0 in the zero-weight copies
+
+    private TestGraphs() {
+    }
+
+    // Gets each test graph as a (name, CsrGraph) pair, for @MethodSource.
+    static Stream<Arguments> shapes() {
+        return Stream.of(
+                Arguments.of("floor plan", GraphGenerator.floorPlan(1000, 1)),
+                Arguments.of("geometric", GraphGenerator.randomGeometric(2000, 6, 2)),
+                Arguments.of("scale-free", GraphGenerator.scaleFree(2000, 3, 3)),
+                Arguments.of("floor plan with zero weights", withZeroWeights(GraphGenerator.floorPlan(1000, 4))),
+                Arguments.of("geometric with zero weights", withZeroWeights(GraphGenerator.randomGeometric(2000, 6, 5))),
+                Arguments.of("scale-free with zero weights", withZeroWeights(GraphGenerator.scaleFree(2000, 3, 6))));
+    }
+
+    // Copies a graph with every ZERO_EVERY-th edge weighing 0, plus one isolated vertex at the end.
+    static CsrGraph withZeroWeights(CsrGraph graph) {
+        return copy(graph, ZERO_EVERY, 1, 1, 0);
+    }
+
+    // Copies a graph with every edge weight multiplied by scale.
+    static CsrGraph withScaledWeights(CsrGraph graph, int scale) {
+        return copy(graph, 0, scale, 0, 0);
+    }
+
+    // Copies a graph with room for spareEdges more edges. Generated graphs are built full, so this is needed before adding any.
+    static CsrGraph withSpareEdges(CsrGraph graph, int spareEdges) {
+        return copy(graph, 0, 1, 0, spareEdges);
+    }
+
+    // Copies a graph, giving every zeroEvery-th edge a weight of 0 (none if zeroEvery is 0), multiplying the other weights by scale,
+    // adding extraVertices vertices that nothing connects to, and leaving room for spareEdges more edges.
+    private static CsrGraph copy(CsrGraph graph, int zeroEvery, int scale, int extraVertices, int spareEdges) {
+        GraphSnapshot snapshot = graph.snapshot();
+        int vertexCount = snapshot.getVertexCount();
+        int[] offsets = snapshot.getOffsets();
+        int[] targets = snapshot.getTargets();
+        int[] weights = snapshot.getWeights();
+        CsrGraph copy = new CsrGraph(vertexCount + extraVertices, Math.max(targets.length / 2 + spareEdges, 1));
+        for (int v = 0; v < vertexCount; v++) {
+            copy.addVertex(new Vertex(snapshot.getName(v), snapshot.getX(v), snapshot.getY(v)));
+        }
+        for (int i = 0; i < extraVertices; i++) {
+            copy.addVertex(new Vertex("Isolated " + i, 0, 0));
+        }
+        int added = 0;
+        for (int v = 0; v < vertexCount; v++) {
+            for (int slot = offsets[v]; slot < offsets[v + 1]; slot++) {
+                if (v < targets[slot]) { // Each undirected edge is in both rows; add it once.
+                    boolean zero = zeroEvery > 0 && added++ % zeroEvery == 0;
+                    copy.addEdge(v, targets[slot], zero ? 0 : weights[slot] * scale);
+                }
+            }
+        }
+        return copy;
+    }
+
+    // Computes the distance from source to every vertex with java.util.PriorityQueue and no decrease-key, as a reference that shares
+    // no code with the searches under test. Unreachable vertices get Integer.MAX_VALUE.
+    static int[] referenceDistances(GraphSnapshot graph, int source) {
+        int[] offsets = graph.getOffsets();
+        int[] targets = graph.getTargets();
+        int[] weights = graph.getWeights();
+        int[] distance = new int[graph.getVertexCount()];
+        Arrays.fill(distance, Integer.MAX_VALUE);
+        distance[source] = 0;
+        PriorityQueue<long[]> queue = new PriorityQueue<>((a, b) -> Long.compare(a[0], b[0]));
+        queue.add(new long[] {0, source});
+        while (!queue.isEmpty()) {
+            long[] entry = queue.poll();
+            int u = (int) entry[1];
+            if (entry[0] > distance[u]) { // A stale entry for a vertex that was reached more cheaply later.
+                continue;
+            }
+            for (int slot = offsets[u]; slot < offsets[u + 1]; slot++) {
+                long candidate = entry[0] + weights[slot];
+                if (candidate < distance[targets[slot]]) {
+                    distance[targets[slot]] = (int) candidate;
+                    queue.add(new long[] {candidate, targets[slot]});
+                }
+            }
+        }
+        return distance;
+    }
+}